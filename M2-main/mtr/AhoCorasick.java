@@ -0,0 +1,33 @@
+/**
+ * Automate d'Aho-Corasick pour des motifs qui ne sont que des ensembles finis de mots : trie des mots, liens d'échec
+ * calculés en largeur et repliés dans la table. On obtient directement le DFA non ancré (celui que step3 donnerait
+ * pour .*(mot1|mot2|...)), en temps linéaire en la taille des mots, sans construction par sous-ensembles.
+ */
+class AhoCorasick {
+  static final int MAX_WORDS=1<<16;
+  /** Mots reconnus par t s'ils sont au plus max, sinon null (., * ou + rendent le langage infini). */
+  static java.util.List<String> words(RegExTree t,int max) {
+    if (t.subTrees.isEmpty()) { if (t.root==EgrepV1.D||t.root>255) return null; java.util.List<String> r=new java.util.ArrayList<>(); r.add(String.valueOf((char)t.root)); return r; }
+    if (t.root!=EgrepV1.C&&t.root!=EgrepV1.A) return null;
+    java.util.List<String> a=words(t.subTrees.get(0),max); if (a==null) return null; java.util.List<String> b=words(t.subTrees.get(1),max); if (b==null) return null;
+    if (t.root==EgrepV1.A) { if (a.size()+b.size()>max) return null; a.addAll(b); return a; }
+    if ((long)a.size()*b.size()>max) return null; java.util.List<String> r=new java.util.ArrayList<>(a.size()*b.size()); for (String x:a) for (String y:b) r.add(x+y); return r;
+  }
+  /** DFA non ancré reconnaissant les mots de W.get(i) avec le numéro i ; tagged=false : un seul motif, ids reste null. */
+  static DFAutomaton build(java.util.List<java.util.List<String>> W,boolean tagged) { Stage st=Stats.begin(Stats.AHO); DFAutomaton d=trie(W,tagged); Stats.end(st,d.acceptingStates.length); return d; }
+  private static DFAutomaton trie(java.util.List<java.util.List<String>> W,boolean tagged) {
+    //CLASS 0 HOLDS EVERY BYTE NO WORD USES; EACH USED BYTE, '\n' AND '\r' GET THEIR OWN CLASS
+    boolean[] used=new boolean[256]; used['\n']=used['\r']=true; for (java.util.List<String> ws:W) for (String w:ws) for (int i=0;i<w.length();i++) used[w.charAt(i)]=true;
+    int[] cls=new int[256]; int k=1; for (int c=0;c<256;c++) if (used[c]) cls[c]=k++;
+    int[] tt=new int[16*k]; java.util.Arrays.fill(tt,-1); int[][] out=new int[16][]; int size=1;
+    for (int i=0;i<W.size();i++) for (String w:W.get(i)) { int s=0;
+      for (int j=0;j<w.length();j++) { int x=s*k+cls[w.charAt(j)]; if (tt[x]<0) { if ((size+1)*k>tt.length) { int o=tt.length; tt=java.util.Arrays.copyOf(tt,2*o); java.util.Arrays.fill(tt,o,2*o,-1); out=java.util.Arrays.copyOf(out,2*out.length); } tt[x]=size++; } s=tt[x]; }
+      out[s]=union(out[s],new int[]{i}); }
+    //BREADTH FIRST: A MISSING EDGE OF u BECOMES THE EDGE OF fail[u], WHICH IS SHALLOWER AND THUS ALREADY COMPLETE
+    int[] fail=new int[size],q=new int[size]; int h=0,t=0;
+    for (int c=0;c<k;c++) if (tt[c]<0) tt[c]=0; else q[t++]=tt[c];
+    while (h<t) { int u=q[h++]; for (int c=0;c<k;c++) { int x=u*k+c,v=tt[x],f=tt[fail[u]*k+c]; if (v<0) tt[x]=f; else { fail[v]=f; out[v]=union(out[v],out[f]); q[t++]=v; } } }
+    boolean[] acc=new boolean[size]; for (int s=0;s<size;s++) acc[s]=out[s]!=null; return new DFAutomaton(cls,k,java.util.Arrays.copyOf(tt,size*k),acc,tagged?java.util.Arrays.copyOf(out,size):null);
+  }
+  private static int[] union(int[] a,int[] b) { if (b==null) return a; if (a==null) return b; int[] r=new int[a.length+b.length]; int i=0,j=0,m=0; while (i<a.length||j<b.length) { int x=j>=b.length||i<a.length&&a[i]<=b[j]?a[i++]:b[j++]; if (m==0||r[m-1]!=x) r[m++]=x; } return java.util.Arrays.copyOf(r,m); }
+}
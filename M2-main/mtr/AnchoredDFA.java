@@ -0,0 +1,15 @@
+/**
+ * DFA ancré de Pattern (step3 puis step4 sans le .* de tête), utilisé pour trouver où commence et finit un match.
+ * Les transitions absentes (-1) mènent à l'état mort -1, d'où rien n'est plus reconnu. L'appelant arrête le
+ * parcours sur '\n' et '\r' : ils ne ramènent pas à 0 comme dans les autres moteurs.
+ */
+class AnchoredDFA extends Engine {
+  final int[] tt,cls; final boolean[] acc; final int k;
+  AnchoredDFA(DFAutomaton d) { this(d.transitionTable,d.classOf,d.acceptingStates,d.classes); }
+  private AnchoredDFA(int[] tt,int[] cls,boolean[] acc,int k) { this.tt=tt; this.cls=cls; this.acc=acc; this.k=k; }
+  int next(int s,int c) { return s<0?-1:tt[s*k+cls[c]]; }
+  boolean accept(int s) { return s>=0&&acc[s]; }
+  boolean dead(int s) { return s<0; }
+  Engine copy() { return new AnchoredDFA(tt,cls,acc,k); }
+  int[] ids(int s) { return accept(s)?ONE:NONE; }
+}
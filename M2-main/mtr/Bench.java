@@ -0,0 +1,104 @@
+/**
+ * Banc d'essai sans dépendance : temps de chaque étape de compilation (parse, step2, step3, step4, compile) et débit
+ * de recherche (Mo/s, fichier projeté, avec l'index de --index, DFA en bytecode de --codegen, fichier gzip, entrée standard) pour un zoo de motifs, sur
+ * 56667-0-full.txt et sur deux textes synthétiques. Chaque mesure fait des itérations de chauffe puis des itérations mesurées (moyenne, écart
+ * type, minimum). Les résultats sont écrits une ligne JSON par mesure ; -c compare à un fichier de résultats
+ * précédent et signale les mesures devenues plus lentes.
+ * Usage: java Bench [-w chauffe] [-i itérations] [-s Mo] [-j threads] [-o résultats.jsonl] [-c ancien.jsonl] [fichier]
+ */
+public class Bench {
+  static final long MIN_NANOS=200_000_000L; static final double SLOWER=1.10;
+  static int warmup=3,iterations=5,threads=1,mb=64; static volatile Object sink; //KEEPS THE RESULTS ALIVE SO THE JIT CANNOT DROP THE WORK
+  public static void main(String[] arg) throws Exception {
+    String out=null,old=null,text="56667-0-full.txt"; int k=0;
+    for (;k<arg.length&&arg[k].startsWith("-")&&k+1<arg.length;k+=2) switch (arg[k]) {
+      case "-w": warmup=Integer.parseInt(arg[k+1]); break; case "-i": iterations=Math.max(1,Integer.parseInt(arg[k+1])); break;
+      case "-s": mb=Math.max(1,Integer.parseInt(arg[k+1])); break; case "-j": threads=Math.max(1,Integer.parseInt(arg[k+1])); break;
+      case "-o": out=arg[k+1]; break; case "-c": old=arg[k+1]; break;
+      default: System.err.println("Usage: java Bench [-w warmup] [-i iterations] [-s MB] [-j threads] [-o results.jsonl] [-c old.jsonl] [file]"); System.exit(1);
+    }
+    if (k<arg.length) text=arg[k];
+    byte[] corpus=java.nio.file.Files.readAllBytes(java.nio.file.Paths.get(text));
+    java.util.Map<String,String> in=new java.util.LinkedHashMap<>(); in.put("corpus",text); in.put("text-"+mb+"MB",synthetic(corpus,mb)); in.put("ab-"+mb+"MB",synthetic(null,mb));
+    //THE ZOO: NAME, PATTERN, INPUT IT IS SCANNED ON (THE (a|b) PATTERNS ONLY MAKE SENSE ON THE ab TEXT)
+    String W=words(corpus,500,0),A="(a|b)*a"+"(a|b)".repeat(11);
+    String[][] zoo={{"literal","Babylon","text"},{"sargon","S(a|g|r)+on","text"},{"dotstar","M(a|e)r.*k","text"},{"dense-words",W,"text"},
+      {"dense-plus","("+words(corpus,100,500)+")s+","text"},{"blowup",A,"ab"},{"glushkov","(a|b)*a"+"(a|b)".repeat(16),"ab"},{"lazy","(a|b)*a"+"(a|b)".repeat(31),"ab"}};
+    java.util.List<String> R=new java.util.ArrayList<>(); java.util.Map<String,String> gz=new java.util.HashMap<>();
+    for (String[] z:zoo) {
+      String name=z[0],re=z[1]; int[] states={-1};
+      RegExTree t=EgrepV1.parse(re); NDFAutomaton n=EgrepV1.step2(EgrepV1.unanchored(t)); DFAutomaton d=EgrepV1.step3(n,EgrepV1.DFA_MAX);
+      R.add(measure("parse",name,"-","ns/op",()->EgrepV1.parse(re)));
+      R.add(measure("step2",name,"-","ns/op",()->EgrepV1.step2(EgrepV1.unanchored(t))));
+      R.add(measure("step3",name,"-","ns/op",()->EgrepV1.step3(n,EgrepV1.DFA_MAX)));
+      if (d!=null) { states[0]=EgrepV1.step4(d).acceptingStates.length; R.add(measure("step4",name,"-","ns/op",()->EgrepV1.step4(d))); }
+      R.add(measure("compile",name,"-","ns/op",()->MultiPattern.compile(java.util.List.of(re))));
+      MultiPattern p=MultiPattern.compile(java.util.List.of(re)); Query ix=TrigramIndex.plan(java.util.List.of(re));
+      System.err.println("# "+name+": "+p.engine.getClass().getSimpleName()+(states[0]>=0?", "+states[0]+" states":"")+(p.prefilter!=null?", prefilter \""+p.prefilter.s+"\"":""));
+      for (java.util.Map.Entry<String,String> e:in.entrySet()) {
+        if (!e.getKey().startsWith(z[2])&&!(e.getKey().equals("corpus")&&z[2].equals("text"))) continue;
+        String f=e.getValue(); long bytes=java.nio.file.Files.size(java.nio.file.Paths.get(f));
+        R.add(throughput("mapped",name,e.getKey(),bytes,()->MappedSearch.search(p.engine,p.prefilter,null,null,null,java.util.List.of(f),false,Report.PLAIN,new Out(java.nio.channels.Channels.newChannel(java.io.OutputStream.nullOutputStream())),threads)));
+        if (ix!=null) R.add(throughput("index",name,e.getKey(),bytes,()->MappedSearch.search(p.engine,p.prefilter,ix,null,null,java.util.List.of(f),false,Report.PLAIN,new Out(java.nio.channels.Channels.newChannel(java.io.OutputStream.nullOutputStream())),threads)));
+        Engine g=CodeDFA.of(p.engine); if (g!=p.engine) R.add(throughput("codegen",name,e.getKey(),bytes,()->MappedSearch.search(g,p.prefilter,null,null,null,java.util.List.of(f),false,Report.PLAIN,new Out(java.nio.channels.Channels.newChannel(java.io.OutputStream.nullOutputStream())),threads)));
+        String zf=gz.computeIfAbsent(f,Bench::gzip); R.add(throughput("gzip",name,e.getKey(),bytes,()->MappedSearch.search(p.engine,p.prefilter,null,null,null,java.util.List.of(zf),false,Report.PLAIN,new Out(java.nio.channels.Channels.newChannel(java.io.OutputStream.nullOutputStream())),threads)));
+        R.add(throughput("stream",name,e.getKey(),bytes,()->{
+          try (java.io.InputStream r=java.nio.file.Files.newInputStream(java.nio.file.Paths.get(f))) { EgrepV1.searchStream(p.engine,p.prefilter,null,Report.PLAIN,r,new Out(java.nio.channels.Channels.newChannel(java.io.OutputStream.nullOutputStream()))); } return null; }));
+      }
+    }
+    if (out==null) for (String r:R) System.out.println(r); else java.nio.file.Files.write(java.nio.file.Paths.get(out),R);
+    if (old!=null&&!compare(java.nio.file.Files.readAllLines(java.nio.file.Paths.get(old)),R)) System.exit(2);
+  }
+  //ONE RESULT: warmup THEN iterations ITERATIONS, EACH REPEATING c UNTIL MIN_NANOS HAVE PASSED; score IS THE MEAN TIME PER CALL
+  private static String measure(String bench,String pattern,String input,String unit,java.util.concurrent.Callable<?> c) throws Exception {
+    double[] v=new double[iterations];
+    for (int it=-warmup;it<iterations;it++) { long t0=System.nanoTime(),t; int ops=0; do { sink=c.call(); ops++; t=System.nanoTime()-t0; } while (t<MIN_NANOS); if (it>=0) v[it]=(double)t/ops; }
+    return result(bench,pattern,input,unit,v);
+  }
+  //SCAN THROUGHPUT IN MB/s: ONE WHOLE PASS OVER THE INPUT PER CALL
+  private static String throughput(String bench,String pattern,String input,long bytes,java.util.concurrent.Callable<?> c) throws Exception {
+    double[] v=new double[iterations];
+    for (int it=-warmup;it<iterations;it++) { long t0=System.nanoTime(); c.call(); long t=System.nanoTime()-t0; if (it>=0) v[it]=bytes/1e6/(t/1e9); }
+    return result(bench,pattern,input,"MB/s",v);
+  }
+  private static String result(String bench,String pattern,String input,String unit,double[] v) {
+    double m=0,s=0,best=unit.equals("MB/s")?0:Double.MAX_VALUE; for (double x:v) { m+=x; best=unit.equals("MB/s")?Math.max(best,x):Math.min(best,x); } m/=v.length; for (double x:v) s+=(x-m)*(x-m); s=Math.sqrt(s/v.length);
+    String r=String.format(java.util.Locale.ROOT,"{\"version\":%d,\"bench\":\"%s\",\"pattern\":\"%s\",\"input\":\"%s\",\"threads\":%d,\"unit\":\"%s\",\"score\":%.3f,\"error\":%.3f,\"best\":%.3f,\"iterations\":%d}",PatternCache.VERSION,bench,pattern,input,threads,unit,m,s,best,v.length);
+    System.err.println(String.format(java.util.Locale.ROOT,"%-8s %-12s %-12s %14.1f +- %-10.1f %s",bench,pattern,input,m,s,unit)); return r;
+  }
+  //SAME bench, pattern, input AND threads: SLOWER IF THE SCORE MOVED BY MORE THAN SLOWER BEYOND BOTH ERRORS. RETURNS FALSE IF ANY DID
+  private static boolean compare(java.util.List<String> old,java.util.List<String> now) {
+    java.util.Map<String,String> o=new java.util.HashMap<>(); for (String l:old) o.put(key(l),l); boolean ok=true;
+    for (String l:now) { String p=o.get(key(l)); if (p==null) continue; double a=num(p,"score"),b=num(l,"score"),e=num(p,"error")+num(l,"error"); boolean up=field(l,"unit").equals("MB/s");
+      double ratio=up?a/b:b/a; boolean worse=ratio>SLOWER&&Math.abs(b-a)>e; ok&=!worse;
+      System.err.println(String.format(java.util.Locale.ROOT,"%s %-8s %-12s %-12s %6.2fx %s",worse?"SLOWER":"      ",field(l,"bench"),field(l,"pattern"),field(l,"input"),ratio,up?"(MB/s)":"(time)")); }
+    return ok;
+  }
+  private static String key(String l) { return field(l,"bench")+" "+field(l,"pattern")+" "+field(l,"input")+" "+field(l,"threads"); }
+  private static String field(String l,String f) { int i=l.indexOf("\""+f+"\":"); if (i<0) return ""; i+=f.length()+3; int j=i; if (l.charAt(i)=='"') { j=l.indexOf('"',++i); } else while (j<l.length()&&",}".indexOf(l.charAt(j))<0) j++; return l.substring(i,j); }
+  private static double num(String l,String f) { String s=field(l,f); return s.isEmpty()?0:Double.parseDouble(s); }
+  //DISTINCT WORDS OF AT LEAST 5 LETTERS OF THE CORPUS, n OF THEM AFTER SKIPPING skip, AS w1|w2|...: THE SAME LIST ON EVERY RUN
+  private static String words(byte[] corpus,int n,int skip) {
+    java.util.LinkedHashSet<String> s=new java.util.LinkedHashSet<>(); int i=0;
+    while (i<corpus.length&&s.size()<n+skip) { while (i<corpus.length&&!Character.isLetter(corpus[i])) i++; int j=i; while (j<corpus.length&&Character.isLetter(corpus[j])&&corpus[j]>0) j++; if (j-i>=5) s.add(new String(corpus,i,j-i,java.nio.charset.StandardCharsets.ISO_8859_1)); i=Math.max(j,i+1); }
+    return String.join("|",new java.util.ArrayList<>(s).subList(Math.min(skip,s.size()),s.size()));
+  }
+  //f COMPRESSED IN A TEMPORARY FILE, ONE gzip MEMBER PER 4 MB OF f (LIKE pigz -i), SO THAT SEVERAL THREADS CAN DECOMPRESS IT
+  private static String gzip(String f) {
+    try { java.nio.file.Path g=java.nio.file.Files.createTempFile("bench",".gz"); g.toFile().deleteOnExit(); byte[] b=new byte[1<<22];
+      try (java.io.InputStream in=java.nio.file.Files.newInputStream(java.nio.file.Paths.get(f)); java.io.OutputStream o=new java.io.BufferedOutputStream(java.nio.file.Files.newOutputStream(g),1<<16)) {
+        for (int k;(k=in.readNBytes(b,0,b.length))>0;) { java.io.ByteArrayOutputStream m=new java.io.ByteArrayOutputStream(); try (java.util.zip.GZIPOutputStream z=new java.util.zip.GZIPOutputStream(m,1<<16)) { z.write(b,0,k); } m.writeTo(o); }
+      }
+      return g.toString();
+    } catch (java.io.IOException e) { throw new java.io.UncheckedIOException(e); }
+  }
+  //mb MEGABYTES IN A TEMPORARY FILE: THE CORPUS REPEATED, OR (corpus==null) SEEDED RANDOM LINES OVER a, b, c
+  private static String synthetic(byte[] corpus,int mb) throws java.io.IOException {
+    java.nio.file.Path f=java.nio.file.Files.createTempFile("bench",".txt"); f.toFile().deleteOnExit(); long size=(long)mb<<20;
+    try (java.io.OutputStream o=new java.io.BufferedOutputStream(java.nio.file.Files.newOutputStream(f),1<<16)) {
+      if (corpus!=null) for (long w=0;w<size;w+=corpus.length) o.write(corpus,0,(int)Math.min(corpus.length,size-w));
+      else { java.util.Random r=new java.util.Random(42); for (long w=0;w<size;w++) { int x=r.nextInt(64); o.write(x==0?'\n':x<6?'c':x<20?'a':'b'); } }
+    }
+    return f.toString();
+  }
+}
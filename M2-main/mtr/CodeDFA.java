@@ -0,0 +1,96 @@
+/**
+ * DFA compilé en bytecode (option --codegen) : au lieu de lire tt[s+cls[c]] à chaque octet, une classe cachée
+ * (Lookup.defineHiddenClass) propre au motif a un bloc de code par état, qui lit l'octet et saute par un switch
+ * vers le bloc de l'état suivant ; un état qui boucle sur lui-même pour la plupart des octets devient une boucle
+ * serrée dont on ne sort que sur les octets du switch. Le JIT compile ce code comme du Java écrit à la main pour
+ * cet automate. Le bytecode est écrit directement (Asm, en bas du fichier) en version 49, sans StackMapTable ; une
+ * méthode de plus de MAX_CODE octets ne serait pas compilée par le JIT (HugeMethodLimit) : le DFA reste alors en table.
+ */
+final class CodeDFA extends DFAEngine {
+  static final int MAX_CODE=7900;
+  /** Le code généré : avance depuis l'état s sur b[i..m) comme DFAEngine.run ; renvoie (état << 32) | indice. */
+  interface Run { long run(java.nio.ByteBuffer b,int i,int m,int s); }
+  private static int serial;
+  final Run code;
+  private CodeDFA(DFAEngine d,Run code) { super(d.tt,d.cls,d.fa,d.k,d.ids); this.code=code; }
+  /** e compilé en bytecode si c'est un DFAEngine assez petit ; sinon e lui-même. */
+  static Engine of(Engine e) {
+    if (!(e instanceof DFAEngine)||e instanceof CodeDFA) return e; DFAEngine d=(DFAEngine)e; Stage st=Stats.begin(Stats.CODEGEN);
+    byte[] c=emit(d,"CodeDFA$"+ ++serial); if (c==null) { Stats.end(st,0); return e; }
+    try { Run r=(Run)java.lang.invoke.MethodHandles.lookup().defineHiddenClass(c,true).lookupClass().getDeclaredConstructor().newInstance(); Stats.end(st,c.length); return new CodeDFA(d,r); }
+    catch (ReflectiveOperationException x) { throw new IllegalStateException(x); }
+  }
+  Engine copy() { return new CodeDFA(this,code); }
+  int run(java.nio.ByteBuffer b,int i,int m) { long x=code.run(b,i,m,st); st=(int)(x>>>32); return (int)x; }
+  //LOCALS: 0 this, 1 b, 2 i, 3 m, 4 s. L[q]: END OF INPUT?, READ b[i], SWITCH TO G[t] FOR THE NEXT STATE t; G[t], AFTER ALL THE L BLOCKS, IS "iinc i; goto L[t]":
+  //EVERY MOVE ENDS ON A BACKWARD goto, THE ONLY BRANCH THE INTERPRETER COUNTS AS A LOOP (A SWITCH IS NOT), SO A LONG SCAN IS COMPILED ON STACK.
+  //A MOVE TO AN ACCEPTING STATE t GOES TO A[t], WHICH STORES t AND JUMPS TO THE SHARED RETURN. THE ENTRY JUMPS TO L[s/k]
+  private static byte[] emit(DFAEngine d,String name) {
+    int k=d.k,n=d.tt.length/k; Asm a=new Asm(name); int[] G=new int[n],L=new int[n],A=new int[n]; int RET=a.label();
+    for (int q=0;q<n;q++) { G[q]=a.label(); L[q]=a.label(); A[q]=a.label(); }
+    a.op(Asm.ILOAD,4); a.push(k); a.op(Asm.IDIV); a.tableswitch(0,n-1,L[0],L);
+    int[] to=new int[256],keys=new int[256],targets=new int[256],count=new int[n];
+    for (int q=0;q<n;q++) {
+      a.bind(L[q]);
+      a.op(Asm.ILOAD,2); a.op(Asm.ILOAD,3); int body=a.label(); a.jump(Asm.IF_ICMPLT,body); a.push(q*k); a.op(Asm.ISTORE,4); a.jump(Asm.GOTO,RET); a.bind(body);
+      a.op(Asm.ALOAD,1); a.op(Asm.ILOAD,2); a.getByte(); a.push(255); a.op(Asm.IAND);
+      //THE DEFAULT IS THE MOST FREQUENT NEXT STATE (OFTEN q ITSELF: THE SKIP LOOP), THE SWITCH LISTS THE OTHER BYTES
+      java.util.Arrays.fill(count,0); int def=0; for (int c=0;c<256;c++) { to[c]=d.tt[q*k+d.cls[c]]/k; if (++count[to[c]]>count[def]) def=to[c]; } int m=0;
+      for (int c=0;c<256;c++) if (to[c]!=def) { keys[m]=c; targets[m++]=to[c]*k>=d.fa?A[to[c]]:G[to[c]]; }
+      int dl=def*k>=d.fa?A[def]:G[def]; if (m==0) { a.op(Asm.POP); a.jump(Asm.GOTO,dl); }
+      else if (keys[m-1]-keys[0]<4*m) { int[] ls=new int[keys[m-1]-keys[0]+1]; java.util.Arrays.fill(ls,dl); for (int j=0;j<m;j++) ls[keys[j]-keys[0]]=targets[j]; a.tableswitch(keys[0],keys[m-1],dl,ls); }
+      else a.lookupswitch(dl,keys,targets,m);
+      if (a.size()>MAX_CODE) return null;
+    }
+    for (int q=0;q<n;q++) { a.bind(G[q]); a.iinc(2,1); a.jump(Asm.GOTO,L[q]); }
+    for (int q=0;q<n;q++) { a.bind(A[q]); a.push(q*k); a.op(Asm.ISTORE,4); a.jump(Asm.GOTO,RET); }
+    a.bind(RET); a.op(Asm.ILOAD,4); a.op(Asm.I2L); a.push(32); a.op(Asm.LSHL); a.op(Asm.ILOAD,2); a.op(Asm.I2L); a.op(Asm.LOR); a.op(Asm.LRETURN);
+    return a.size()>MAX_CODE?null:a.classFile();
+  }
+}
+/**
+ * Juste assez d'assembleur JVM pour CodeDFA : une classe finale qui implémente CodeDFA$Run, un constructeur vide
+ * et la méthode run(ByteBuffer,int,int,int)J. Les sauts vers une étiquette pas encore placée sont corrigés à la fin.
+ */
+final class Asm {
+  static final int ILOAD=0x15,ALOAD=0x19,ISTORE=0x36,IDIV=0x6C,IAND=0x7E,I2L=0x85,LSHL=0x79,LOR=0x81,LRETURN=0xAD,POP=0x57,IF_ICMPLT=0xA1,GOTO=0xA7;
+  private final String name; private final java.io.ByteArrayOutputStream code=new java.io.ByteArrayOutputStream(); private final java.util.List<Object> pool=new java.util.ArrayList<>();
+  private int[] at=new int[64]; private int labels; private final java.util.List<int[]> fix=new java.util.ArrayList<>(); //{FIELD POSITION, INSTRUCTION START, LABEL, WIDTH}
+  Asm(String name) { this.name=name; }
+  int label() { if (labels==at.length) at=java.util.Arrays.copyOf(at,2*labels); at[labels]=-1; return labels++; }
+  void bind(int l) { at[l]=code.size(); }
+  int size() { return code.size(); }
+  void op(int o) { code.write(o); }
+  void op(int o,int v) { code.write(o); code.write(v); }
+  void iinc(int v,int by) { code.write(0x84); code.write(v); code.write(by); }
+  void push(int v) { if (v>=-1&&v<=5) code.write(0x03+v); else if (v==(byte)v) op(0x10,v&255); else if (v==(short)v) { code.write(0x11); u2(v); } else { code.write(0x13); u2(constant(v)); } }
+  void jump(int o,int l) { int s=code.size(); code.write(o); fix.add(new int[]{code.size(),s,l,2}); u2(0); }
+  void getByte() { code.write(0xB6); u2(method("java/nio/ByteBuffer","get","(I)B")); }
+  void tableswitch(int lo,int hi,int def,int[] ls) { int s=start(0xAA); wide(s,def); u4(lo); u4(hi); for (int i=0;i<=hi-lo;i++) wide(s,ls[i]); }
+  void lookupswitch(int def,int[] keys,int[] ls,int m) { int s=start(0xAB); wide(s,def); u4(m); for (int i=0;i<m;i++) { u4(keys[i]); wide(s,ls[i]); } }
+  private int start(int o) { int s=code.size(); code.write(o); while (code.size()%4!=0) code.write(0); return s; }
+  private void wide(int s,int l) { fix.add(new int[]{code.size(),s,l,4}); u4(0); }
+  private void u2(int v) { code.write(v>>>8); code.write(v); }
+  private void u4(int v) { u2(v>>>16); u2(v); }
+  //CONSTANT POOL: ENTRIES ARE KEPT AS {TAG, ...} AND WRITTEN IN ORDER; INDEX = POSITION + 1
+  private int entry(Object... e) { for (int i=0;i<pool.size();i++) if (java.util.Arrays.equals((Object[])pool.get(i),e)) return i+1; pool.add(e); return pool.size(); }
+  private int utf8(String s) { return entry(1,s); }
+  private int constant(int v) { return entry(3,v); }
+  private int type(String c) { return entry(7,utf8(c)); }
+  private int method(String c,String n,String t) { return entry(10,type(c),entry(12,utf8(n),utf8(t))); }
+  byte[] classFile() {
+    byte[] c=code.toByteArray(); for (int[] f:fix) { int v=at[f[2]]-f[1]; if (f[3]==2) { c[f[0]]=(byte)(v>>>8); c[f[0]+1]=(byte)v; } else for (int j=0;j<4;j++) c[f[0]+j]=(byte)(v>>>24-8*j); }
+    int self=type(name),sup=type("java/lang/Object"),run=type("CodeDFA$Run"),init=method("java/lang/Object","<init>","()V"),codeName=utf8("Code"),in=utf8("<init>"),v=utf8("()V"),rn=utf8("run"),rt=utf8("(Ljava/nio/ByteBuffer;III)J");
+    java.io.ByteArrayOutputStream o=new java.io.ByteArrayOutputStream(); java.io.DataOutputStream w=new java.io.DataOutputStream(o);
+    try {
+      w.writeInt(0xCAFEBABE); w.writeShort(0); w.writeShort(49); w.writeShort(pool.size()+1);
+      for (Object x:pool) { Object[] e=(Object[])x; int tag=(Integer)e[0]; w.writeByte(tag); if (tag==1) w.writeUTF((String)e[1]); else if (tag==3) w.writeInt((Integer)e[1]); else if (tag==7) w.writeShort((Integer)e[1]); else { w.writeShort((Integer)e[1]); w.writeShort((Integer)e[2]); } }
+      w.writeShort(0x0031); w.writeShort(self); w.writeShort(sup); w.writeShort(1); w.writeShort(run); w.writeShort(0); w.writeShort(2);
+      //public <init>()V { aload_0; invokespecial Object.<init>; return }
+      w.writeShort(0x0001); w.writeShort(in); w.writeShort(v); w.writeShort(1); w.writeShort(codeName); w.writeInt(12+5); w.writeShort(1); w.writeShort(1); w.writeInt(5); w.write(new byte[]{0x2A,(byte)0xB7,(byte)(init>>>8),(byte)init,(byte)0xB1}); w.writeShort(0); w.writeShort(0);
+      w.writeShort(0x0001); w.writeShort(rn); w.writeShort(rt); w.writeShort(1); w.writeShort(codeName); w.writeInt(12+c.length); w.writeShort(4); w.writeShort(5); w.writeInt(c.length); w.write(c); w.writeShort(0); w.writeShort(0);
+      w.writeShort(0);
+    } catch (java.io.IOException e) { throw new java.io.UncheckedIOException(e); }
+    return o.toByteArray();
+  }
+}
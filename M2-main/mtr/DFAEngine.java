@@ -0,0 +1,18 @@
+/**
+ * DFA complet (step3 puis step4) sur classes d'octets. Les états sont pré-multipliés par le nombre de classes
+ * (transition = tt[s+cls[c]], une seule table plate) et numérotés 0, puis non acceptants, puis acceptants :
+ * un état est acceptant ssi s>=fa, sans tableau à consulter.
+ */
+class DFAEngine extends Engine {
+  final int[] tt,cls; final int fa,k; final int[][] ids;
+  DFAEngine(DFAutomaton d) {
+    int n=d.acceptingStates.length,k=d.classes,p=1; int[] perm=new int[n]; for (int s=1;s<n;s++) if (!d.acceptingStates[s]) perm[s]=p++; int f=p; for (int s=1;s<n;s++) if (d.acceptingStates[s]) perm[s]=p++;
+    fa=d.acceptingStates[0]?0:f*k; cls=d.classOf; this.k=k; if (d.ids==null) ids=null; else { ids=new int[n][]; for (int s=0;s<n;s++) ids[perm[s]]=d.ids[s]; } tt=new int[n*k]; for (int s=0;s<n;s++) for (int c=0;c<k;c++) tt[perm[s]*k+c]=c==cls['\n']||c==cls['\r']?0:perm[d.transitionTable[s*k+c]]*k;
+  }
+  DFAEngine(int[] tt,int[] cls,int fa,int k,int[][] ids) { this.tt=tt; this.cls=cls; this.fa=fa; this.k=k; this.ids=ids; }
+  int next(int s,int c) { return tt[s+cls[c]]; }
+  boolean accept(int s) { return s>=fa; }
+  Engine copy() { return new DFAEngine(tt,cls,fa,k,ids); }
+  int[] ids(int s) { int[] r=ids==null?ONE:ids[s/k]; return r==null?NONE:r; }
+  int run(java.nio.ByteBuffer b,int i,int m) { int[] tt=this.tt,cls=this.cls; int fa=this.fa,s=st; for (;i<m;i++) { s=tt[s+cls[b.get(i)&0xFF]]; if (s>=fa) break; } st=s; return i; }
+}
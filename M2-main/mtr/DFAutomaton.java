@@ -0,0 +1,9 @@
+/** Automate déterministe (step3, step4) sur classes d'octets. */
+class DFAutomaton {
+  //classOf MAPS A BYTE TO ITS CLASS; TRANSITION FROM s ON BYTE c IS transitionTable[s*classes+classOf[c]] (-1 = NONE)
+  //ids[s]: PATTERN NUMBERS RECOGNIZED BY THE ACCEPTING STATE s (null WHEN THERE IS ONE PATTERN)
+  int[] classOf; int classes; int[] transitionTable; boolean[] acceptingStates; int[][] ids;
+  DFAutomaton(int[] cls,int k,int[] t,boolean[] a) { this(cls,k,t,a,null); }
+  DFAutomaton(int[] cls,int k,int[] t,boolean[] a,int[][] ids) { classOf=cls; classes=k; transitionTable=t; acceptingStates=a; this.ids=ids; }
+  int next(int s,int c) { return transitionTable[s*classes+classOf[c]]; }
+}
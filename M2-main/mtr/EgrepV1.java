@@ -1,61 +1,137 @@
 public class EgrepV1 {
-  static final int C=0xC04CA7,E=0xE7011E,A=0xA17E54,P=0xBADDAD,PO=0x16641664,PF=0x51515151,D=0xD07,PL=0xE7011F;
-  private static String regEx;
+  static final int C=0xC04CA7,E=0xE7011E,A=0xA17E54,P=0xBADDAD,PO=0x16641664,PF=0x51515151,D=0xD07,PL=0xE7011F,R=0x8A46E;
+  static final int DFA_MAX=10000,DFA_SMALL=256,SETS_MAX=1<<24;
+  private static int threads=Runtime.getRuntime().availableProcessors(); static int buffer=1<<20;
+  private static boolean recursive,only,count,list,lines,bytes,stats,codegen,index,resume,follow;
+  /** Alphabet des motifs : UTF-8 (le « . » est un caractère UTF-8 bien formé) si la locale le dit, comme grep ; sinon un octet par caractère. */
+  static boolean utf8=utf8Locale();
   public static void main(String[] arg) {
-    if (arg.length<1) { System.err.println("Usage: java EgrepV1 <regex> [file]"); System.exit(1); }
-    regEx=arg[0];
+    int k=0; java.util.List<String> es=new java.util.ArrayList<>(); for (;k<arg.length&&arg[k].startsWith("-")&&arg[k].length()>1;k++) { if (arg[k].equals("--")) { k++; break; } if (arg[k].equals("-j")&&k+1<arg.length) threads=Math.max(1,Integer.parseInt(arg[++k])); else if (arg[k].equals("-e")&&k+1<arg.length) es.add(arg[++k]); else if (arg[k].matches("-[rocnlb]+")) for (char c:arg[k].substring(1).toCharArray()) flag(c); else if (arg[k].equals("--no-cache")) PatternCache.dir=null; else if (arg[k].equals("--stats")) stats=true; else if (arg[k].equals("--codegen")) codegen=true; else if (arg[k].equals("--index")) index=true; else if (arg[k].equals("--resume")) resume=true; else if (arg[k].equals("--follow")) follow=true; else if (arg[k].equals("--buffer")&&k+1<arg.length) buffer=Math.max(4,Integer.parseInt(arg[++k]))<<10; else { System.err.println("Unknown option: "+arg[k]); System.exit(1); } }
+    if (es.isEmpty()) { if (arg.length-k<1) { System.err.println("Usage: java EgrepV1 [-j threads] [-r] [-o|-c|-l] [-n] [-b] [--no-cache] [--buffer Ko] [--stats] [--codegen] [--index] [--resume|--follow] (<regex> | -e <regex>...) [file|dir...]"); System.exit(1); } es.add(arg[k++]); }
+    java.util.List<String> paths=java.util.Arrays.asList(arg).subList(k,arg.length);
+    Out out=Out.stdout();
     try {
-      RegExTree t=parse(); NDFAutomaton n=step2(t); DFAutomaton d=step4(step3(n));
-      if (arg.length>=2) searchFile(d,arg[1]); else searchStream(d,new java.io.BufferedReader(new java.io.InputStreamReader(System.in)));
-    } catch (Exception e) { System.err.println("ERROR: "+e.getMessage()); e.printStackTrace(); System.exit(1); }
+      //-o NEEDS THE ANCHORED AUTOMATON OF Pattern TO FIND WHERE EACH MATCH STARTS AND ENDS; OTHERWISE THE SEARCH AUTOMATON ALONE IS ENOUGH
+      Pattern P=only&&!count&&!list?Pattern.compile(es):null; MultiPattern p=P!=null?P.search:PatternCache.get(es); boolean files=!paths.isEmpty()||recursive;
+      Report o=new Report(P!=null,count&&!list,list,lines,bytes,paths.size()>1||recursive);
+      Engine e=codegen?CodeDFA.of(p.engine):p.engine; long t0=System.nanoTime(); boolean ok=true;
+      //--resume AND --follow: ONLY WHAT WAS APPENDED SINCE THE LAST RUN (CHECKPOINTS OF Follow); --follow THEN WAITS FOR MORE (STANDARD INPUT ALREADY DOES)
+      if (files) { Query q=index?TrigramIndex.plan(es):null; Follow fw=resume||follow?new Follow(es):null; java.util.List<String> ps=paths.isEmpty()?java.util.List.of("."):paths; ok=searchFiles(e,p.prefilter,q,fw,P,ps,o,out);
+        if (fw!=null) { out.flush(); fw.save(); if (follow) fw.follow(ps,recursive,x->searchFiles(e,p.prefilter,q,fw,P,x,o,out),out); } }
+      else searchStream(e,p.prefilter,P==null?null:P.matcher(),o,new java.io.FileInputStream(java.io.FileDescriptor.in),out);
+      out.flush(); if (stats) System.err.print(Stats.report(System.nanoTime()-t0)); if (!ok) System.exit(1);
+    } catch (Exception e) {
+      //THE READER OF THE OUTPUT WENT AWAY (head, A CLOSED PIPE): STOP QUIETLY, WITH THE STATUS A SHELL GIVES A PROCESS KILLED BY SIGPIPE
+      if (out.broken) System.exit(141); System.err.println("ERROR: "+e.getMessage()); e.printStackTrace(); System.exit(1); }
   }
-  private static RegExTree parse() throws Exception {
-    java.util.ArrayList<RegExTree> L=new java.util.ArrayList<>(); for (int i=0;i<regEx.length();i++) L.add(new RegExTree(ch(regEx.charAt(i)),new java.util.ArrayList<>())); return parse(L);
+  static RegExTree parse(String regEx) throws Exception {
+    Stage st=Stats.begin(Stats.PARSE);
+    //ONE PASS (SHUNTING-YARD) WITH EXPLICIT STACKS: out HOLDS THE OPERAND TREES, op THE PENDING PO, A AND C (at: POSITION OF EACH PO); * AND + APPLY AT ONCE TO THE LAST OPERAND
+    //PRECEDENCE * + > CONCAT > |, ALL LEFT-ASSOCIATIVE: THE SAME TREES AS THE FORMER LIST REWRITING, IN LINEAR TIME AND WITHOUT RECURSION
+    java.util.ArrayDeque<RegExTree> out=new java.util.ArrayDeque<>(); int[] op=new int[regEx.length()+1],at=new int[regEx.length()+1]; int sp=0; boolean operand=false;
+    for (int i=0;i<regEx.length();i++) { int c=ch(regEx.charAt(i));
+      if (c==E||c==PL) { if (!operand) throw new Exception("Nothing to repeat at position "+i); java.util.ArrayList<RegExTree> s=new java.util.ArrayList<>(); s.add(out.pop()); out.push(new RegExTree(c,s)); }
+      else if (c==A) { if (!operand) throw new Exception("Empty alternative at position "+i); sp=reduce(out,op,sp,A); op[sp++]=A; operand=false; }
+      else if (c==PF) { if (!operand) throw new Exception("Empty group or alternative at position "+i); sp=reduce(out,op,sp,PO); if (sp==0) throw new Exception("Mismatched parentheses at position "+i); sp--; operand=true; }
+      else { if (operand) { sp=reduce(out,op,sp,C); op[sp++]=C; } if (c==PO) { at[sp]=i; op[sp++]=PO; operand=false; } else { int cp=regEx.codePointAt(i); if (c!=D) i+=Character.charCount(cp)-1; out.push(c==D?utf8?dot():leaf(D):literal(cp)); operand=true; } }
+    }
+    if (!operand) throw new Exception("Unexpected end of regex at position "+regEx.length()); sp=reduce(out,op,sp,PO); if (sp>0) throw new Exception("Mismatched parentheses at position "+at[sp-1]); RegExTree t=out.pop(); Stats.end(st,regEx.length()); return t;
   }
+  //LEAVES ARE BYTES: A CHARACTER BEYOND THE ALPHABET (0x80 IN UTF-8, 0x100 OTHERWISE) BECOMES THE CONCATENATION OF ITS UTF-8 BYTES
+  private static RegExTree literal(int cp) {
+    if (cp<(utf8?0x80:0x100)) return leaf(cp); RegExTree t=null;
+    for (byte x:new String(Character.toChars(cp)).getBytes(java.nio.charset.StandardCharsets.UTF_8)) t=t==null?leaf(x&0xFF):new RegExTree(C,new java.util.ArrayList<>(java.util.Arrays.asList(t,leaf(x&0xFF))));
+    return t;
+  }
+  private static RegExTree leaf(int c) { return new RegExTree(c,new java.util.ArrayList<>()); }
+  //ONE WELL-FORMED UTF-8 CHARACTER: THE ROWS OF THE UNICODE TABLE OF WELL-FORMED BYTE SEQUENCES, EACH A CONCATENATION OF BYTE RANGES, IN ONE ALTERNATION
+  private static final int[][] UTF8={{0x00,0x7F},{0xC2,0xDF,0x80,0xBF},{0xE0,0xE0,0xA0,0xBF,0x80,0xBF},{0xE1,0xEC,0x80,0xBF,0x80,0xBF},{0xED,0xED,0x80,0x9F,0x80,0xBF},
+    {0xEE,0xEF,0x80,0xBF,0x80,0xBF},{0xF0,0xF0,0x90,0xBF,0x80,0xBF,0x80,0xBF},{0xF1,0xF3,0x80,0xBF,0x80,0xBF,0x80,0xBF},{0xF4,0xF4,0x80,0x8F,0x80,0xBF,0x80,0xBF}};
+  private static RegExTree dot() {
+    RegExTree a=null; for (int[] r:UTF8) { RegExTree t=null; for (int k=0;k<r.length;k+=2) { RegExTree x=new RegExTree(r[k],r[k+1]); t=t==null?x:new RegExTree(C,new java.util.ArrayList<>(java.util.Arrays.asList(t,x))); } a=a==null?t:new RegExTree(A,new java.util.ArrayList<>(java.util.Arrays.asList(a,t))); }
+    return a;
+  }
+  private static boolean utf8Locale() { String l=System.getenv("LC_ALL"); if (l==null||l.isEmpty()) l=System.getenv("LC_CTYPE"); if (l==null||l.isEmpty()) l=System.getenv("LANG"); return l!=null&&l.toLowerCase().replace("-","").contains("utf8"); }
   private static int ch(char c) { if (c=='.') return D; if (c=='*') return E; if (c=='+') return PL; if (c=='|') return A; if (c=='(') return PO; if (c==')') return PF; return c; }
-  private static RegExTree parse(java.util.ArrayList<RegExTree> L) throws Exception {
-    while (has(L,PF)||has(L,PO)) L=paren(L); while (has(L,E)) L=op(L,E); while (has(L,PL)) L=op(L,PL); while (hasCat(L)) L=cat(L); while (has(L,A)) L=alt(L);
-    if (L.size()!=1) throw new Exception("Invalid regex"); return unprot(L.get(0));
-  }
-  private static boolean has(java.util.ArrayList<RegExTree> L,int r) { for (RegExTree t:L) if (t.root==r&&t.subTrees.isEmpty()) return true; return false; }
-  private static boolean hasCat(java.util.ArrayList<RegExTree> L) { boolean f=false; for (RegExTree t:L) { if (!f&&t.root!=A) f=true; else if (f&&t.root!=A) return true; else if (f) f=false; } return false; }
-  private static java.util.ArrayList<RegExTree> paren(java.util.ArrayList<RegExTree> L) throws Exception {
-    java.util.ArrayList<RegExTree> R=new java.util.ArrayList<>(),C; for (RegExTree t:L) {
-      if (t.root!=PF) { R.add(t); continue; } C=new java.util.ArrayList<>(); while (!R.isEmpty()&&R.get(R.size()-1).root!=PO) C.add(0,R.remove(R.size()-1));
-      if (R.isEmpty()) throw new Exception("Mismatched parentheses"); R.remove(R.size()-1); java.util.ArrayList<RegExTree> one=new java.util.ArrayList<>(); one.add(parse(C)); R.add(new RegExTree(P,one));
-    } return R;
-  }
-  private static java.util.ArrayList<RegExTree> op(java.util.ArrayList<RegExTree> L,int op) throws Exception {
-    java.util.ArrayList<RegExTree> R=new java.util.ArrayList<>(); for (RegExTree t:L) { if (t.root==op&&t.subTrees.isEmpty()) { if (R.isEmpty()) throw new Exception("Invalid op"); java.util.ArrayList<RegExTree> one=new java.util.ArrayList<>(); one.add(R.remove(R.size()-1)); R.add(new RegExTree(op,one)); } else R.add(t); } return R;
-  }
-  private static java.util.ArrayList<RegExTree> cat(java.util.ArrayList<RegExTree> L) throws Exception {
-    java.util.ArrayList<RegExTree> R=new java.util.ArrayList<>(); boolean f=false,ff=false; for (RegExTree t:L) { if (!f&&!ff&&t.root!=A) { ff=true; R.add(t); } else if (!f&&ff&&t.root==A) { ff=false; R.add(t); } else if (!f&&ff&&t.root!=A) { f=true; RegExTree l=R.remove(R.size()-1); R.add(new RegExTree(C,new java.util.ArrayList<>(java.util.Arrays.asList(l,t)))); } else R.add(t); } return R;
-  }
-  private static java.util.ArrayList<RegExTree> alt(java.util.ArrayList<RegExTree> L) throws Exception {
-    java.util.ArrayList<RegExTree> R=new java.util.ArrayList<>(); RegExTree g=null; boolean fd=false,done=false; for (RegExTree t:L) { if (!fd&&t.root==A&&t.subTrees.isEmpty()) { if (R.isEmpty()) throw new Exception("Invalid |"); g=R.remove(R.size()-1); fd=true; } else if (fd&&!done) { java.util.ArrayList<RegExTree> s=new java.util.ArrayList<>(); s.add(g); s.add(t); R.add(new RegExTree(A,s)); done=true; } else R.add(t); } return R;
-  }
-  private static RegExTree unprot(RegExTree t) throws Exception { if (t.root==P&&t.subTrees.size()!=1) throw new Exception("Invalid protection"); if (t.subTrees.isEmpty()) return t; if (t.root==P) return unprot(t.subTrees.get(0)); java.util.ArrayList<RegExTree> s=new java.util.ArrayList<>(); for (RegExTree c:t.subTrees) s.add(unprot(c)); return new RegExTree(t.root,s); }
-  private static NDFAutomaton step2(RegExTree t) {
-    if (t.subTrees.isEmpty()) { int[][] tt=new int[2][256]; @SuppressWarnings("unchecked") java.util.ArrayList<Integer>[] et=new java.util.ArrayList[2]; et[0]=new java.util.ArrayList<>(); et[1]=new java.util.ArrayList<>(); for (int i=0;i<256;i++) tt[0][i]=-1; if (t.root!=D) tt[0][t.root]=1; else for (int i=0;i<256;i++) tt[0][i]=1; return new NDFAutomaton(tt,et); }
-    if (t.root==C) { NDFAutomaton L=step2(t.subTrees.get(0)),R=step2(t.subTrees.get(1)); int lg=L.transitionTable.length,ld=R.transitionTable.length; int[][] tt=new int[lg+ld][256]; @SuppressWarnings("unchecked") java.util.ArrayList<Integer>[] et=new java.util.ArrayList[lg+ld]; for (int i=0;i<lg+ld;i++) { et[i]=new java.util.ArrayList<>(); for (int c=0;c<256;c++) tt[i][c]=-1; } for (int i=0;i<lg;i++) { for (int c=0;c<256;c++) tt[i][c]=L.transitionTable[i][c]; et[i].addAll(L.epsilonTransitionTable[i]); } et[lg-1].add(lg); for (int i=lg;i<lg+ld-1;i++) for (int c=0;c<256;c++) if (R.transitionTable[i-lg][c]!=-1) tt[i][c]=R.transitionTable[i-lg][c]+lg; for (int i=lg;i<lg+ld-1;i++) for (int s:R.epsilonTransitionTable[i-lg]) et[i].add(s+lg); return new NDFAutomaton(tt,et); }
-    if (t.root==A) { NDFAutomaton L=step2(t.subTrees.get(0)),R=step2(t.subTrees.get(1)); int lg=L.transitionTable.length,ld=R.transitionTable.length; int[][] tt=new int[2+lg+ld][256]; @SuppressWarnings("unchecked") java.util.ArrayList<Integer>[] et=new java.util.ArrayList[2+lg+ld]; for (int i=0;i<2+lg+ld;i++) { et[i]=new java.util.ArrayList<>(); for (int c=0;c<256;c++) tt[i][c]=-1; } et[0].add(1); et[0].add(1+lg); et[lg].add(2+lg+ld-1); et[1+lg+ld-1].add(2+lg+ld-1); for (int i=1;i<=lg;i++) { for (int c=0;c<256;c++) if (L.transitionTable[i-1][c]!=-1) tt[i][c]=L.transitionTable[i-1][c]+1; for (int s:L.epsilonTransitionTable[i-1]) et[i].add(s+1); } for (int i=1+lg;i<1+lg+ld;i++) { for (int c=0;c<256;c++) if (R.transitionTable[i-1-lg][c]!=-1) tt[i][c]=R.transitionTable[i-1-lg][c]+1+lg; for (int s:R.epsilonTransitionTable[i-1-lg]) et[i].add(s+1+lg); } return new NDFAutomaton(tt,et); }
-    if (t.root==E||t.root==PL) { NDFAutomaton F=step2(t.subTrees.get(0)); int l=F.transitionTable.length; int[][] tt=new int[2+l][256]; @SuppressWarnings("unchecked") java.util.ArrayList<Integer>[] et=new java.util.ArrayList[2+l]; for (int i=0;i<2+l;i++) { et[i]=new java.util.ArrayList<>(); for (int c=0;c<256;c++) tt[i][c]=-1; } et[0].add(1); if (t.root==E) et[0].add(1+l); et[l].add(1+l); et[l].add(1); for (int i=1;i<1+l;i++) { for (int c=0;c<256;c++) if (F.transitionTable[i-1][c]!=-1) tt[i][c]=F.transitionTable[i-1][c]+1; for (int s:F.epsilonTransitionTable[i-1]) et[i].add(s+1); } return new NDFAutomaton(tt,et); } return null;
-  }
-  private static java.util.Set<Integer> eps(NDFAutomaton n,java.util.Set<Integer> S) { java.util.Set<Integer> cl=new java.util.HashSet<>(S); java.util.Stack<Integer> st=new java.util.Stack<>(); st.addAll(S); while (!st.isEmpty()) { int q=st.pop(); for (int r:n.epsilonTransitionTable[q]) if (!cl.contains(r)) { cl.add(r); st.push(r); } } return cl; }
-  private static DFAutomaton step3(NDFAutomaton n) {
-    java.util.HashMap<java.util.Set<Integer>,Integer> map=new java.util.HashMap<>(); java.util.ArrayList<java.util.Set<Integer>> states=new java.util.ArrayList<>(); java.util.Queue<Integer> q=new java.util.LinkedList<>(); java.util.Set<Integer> s0=eps(n,java.util.Collections.singleton(0)); map.put(s0,0); states.add(s0); q.add(0); java.util.ArrayList<java.util.HashMap<Integer,Integer>> trans=new java.util.ArrayList<>(); trans.add(new java.util.HashMap<>()); int fin=n.transitionTable.length-1;
-    while (!q.isEmpty()) { int cur=q.poll(); java.util.Set<Integer> nfa=states.get(cur); for (int c=0;c<256;c++) { java.util.Set<Integer> next=new java.util.HashSet<>(); for (int s:nfa) if (n.transitionTable[s][c]!=-1) next.add(n.transitionTable[s][c]); if (next.isEmpty()) continue; java.util.Set<Integer> cl=eps(n,next); if (!map.containsKey(cl)) { int id=states.size(); map.put(cl,id); states.add(cl); q.add(id); trans.add(new java.util.HashMap<>()); } trans.get(cur).put(c,map.get(cl)); } }
-    int[][] tt=new int[states.size()][256]; boolean[] acc=new boolean[states.size()]; for (int i=0;i<states.size();i++) { for (int c=0;c<256;c++) tt[i][c]=trans.get(i).getOrDefault(c,-1); acc[i]=states.get(i).contains(fin); } return new DFAutomaton(tt,acc);
-  }
-  private static DFAutomaton step4(DFAutomaton d) {
-    int n=d.transitionTable.length; java.util.List<java.util.Set<Integer>> part=new java.util.ArrayList<>(); java.util.Set<Integer> acc=new java.util.HashSet<>(),nacc=new java.util.HashSet<>(); for (int i=0;i<n;i++) if (d.acceptingStates[i]) acc.add(i); else nacc.add(i); if (!acc.isEmpty()) part.add(acc); if (!nacc.isEmpty()) part.add(nacc);
-    for (boolean ch=true;ch;) { ch=false; java.util.List<java.util.Set<Integer>> np=new java.util.ArrayList<>(); for (java.util.Set<Integer> block:part) { if (block.size()<=1) { np.add(block); continue; } java.util.Map<String,java.util.Set<Integer>> sp=new java.util.HashMap<>(); for (int s:block) { StringBuilder sb=new StringBuilder(); for (int c=0;c<256;c++) { int t=d.transitionTable[s][c]; int pi=-1; for (int i=0;i<part.size();i++) if (part.get(i).contains(t)) { pi=i; break; } sb.append(t==-1?"-1":pi).append(","); } String k=sb.toString(); sp.putIfAbsent(k,new java.util.HashSet<>()); sp.get(k).add(s); } if (sp.size()>1) ch=true; np.addAll(sp.values()); } part=np; }
-    java.util.Map<Integer,Integer> toPart=new java.util.HashMap<>(); for (int i=0;i<part.size();i++) for (int s:part.get(i)) toPart.put(s,i); int[][] tt=new int[part.size()][256]; boolean[] acc2=new boolean[part.size()]; for (int i=0;i<part.size();i++) { int r=part.get(i).iterator().next(); acc2[i]=d.acceptingStates[r]; for (int c=0;c<256;c++) tt[i][c]=d.transitionTable[r][c]==-1?-1:toPart.get(d.transitionTable[r][c]); } int ip=toPart.get(0); if (ip!=0) { int[] T=tt[0]; tt[0]=tt[ip]; tt[ip]=T; boolean b=acc2[0]; acc2[0]=acc2[ip]; acc2[ip]=b; for (int i=0;i<tt.length;i++) for (int c=0;c<256;c++) { if (tt[i][c]==0) tt[i][c]=ip; else if (tt[i][c]==ip) tt[i][c]=0; } } return new DFAutomaton(tt,acc2);
-  }
-  private static void searchFile(DFAutomaton d,String path) throws java.io.IOException { java.io.BufferedReader r=new java.io.BufferedReader(new java.io.FileReader(path)); searchStream(d,r); r.close(); }
-  private static void searchStream(DFAutomaton d,java.io.BufferedReader r) throws java.io.IOException { String line; while ((line=r.readLine())!=null) { if (d.acceptingStates[0]) { System.out.println(line); continue; } for (int i=0;i<line.length();i++) if (match(d,line,i)) { System.out.println(line); break; } } }
-  private static boolean match(DFAutomaton d,String s,int start) { int st=0; for (int i=start;i<s.length();i++) { char c=s.charAt(i); if (c>=256) return false; int n=d.transitionTable[st][c]; if (n==-1) return false; st=n; if (d.acceptingStates[st]) return true; } return d.acceptingStates[st]; }
+  //APPLIES THE PENDING OPERATORS ABOVE THE LAST PO THAT BIND AT LEAST AS TIGHTLY AS o (o=PO: ALL OF THEM); RETURNS THE NEW STACK HEIGHT
+  private static int reduce(java.util.ArrayDeque<RegExTree> out,int[] op,int sp,int o) { while (sp>0&&op[sp-1]!=PO&&(o!=C||op[sp-1]==C)) { RegExTree r=out.pop(),l=out.pop(); out.push(new RegExTree(op[--sp],new java.util.ArrayList<>(java.util.Arrays.asList(l,r)))); } return sp; }
+  static NDFAutomaton step2(RegExTree t) { Stage st=Stats.begin(Stats.STEP2); NDFAutomaton n=new NDFAutomaton(); n.size=step2(n,t,0); Stats.end(st,n.size); return n; }
+  static NDFAutomaton step2(java.util.List<RegExTree> ts) {
+    //SEVERAL PATTERNS: 0 LOOPS ON ANY BYTE (THE UNANCHORED .*) THEN FANS OUT THROUGH 1..N TO EACH SUB-AUTOMATON; tag[q] IS THE PATTERN WHOSE FINAL STATE IS q
+    Stage st=Stats.begin(Stats.STEP2); NDFAutomaton n=new NDFAutomaton(); int N=ts.size(),b=N+1; int[] start=new int[N],fin=new int[N]; n.ensure(b); n.edge(0,0,255,0); n.eps(0,1);
+    for (int i=0;i<N;i++) { start[i]=b; b+=step2(n,ts.get(i),b); fin[i]=b-1; } n.size=b; n.tag=new int[b]; java.util.Arrays.fill(n.tag,-1);
+    for (int i=0;i<N;i++) { n.eps(i+1,start[i]); if (i+1<N) n.eps(i+1,i+2); n.tag[fin[i]]=i; } Stats.end(st,n.size); return n;
+  }
+  private static int step2(NDFAutomaton n,RegExTree t,int b) {
+    if (t.subTrees.isEmpty()) { if (t.root==R) n.edge(b,t.lo,t.hi,b+1); else if (t.root!=D) n.edge(b,t.root,t.root,b+1); else n.edge(b,0,255,b+1); n.ensure(b+2); return 2; }
+    if (t.root==C) { int lg=step2(n,t.subTrees.get(0),b); n.eps(b+lg-1,b+lg); return lg+step2(n,t.subTrees.get(1),b+lg); }
+    if (t.root==A) { n.ensure(b+1); int lg=step2(n,t.subTrees.get(0),b+1),ld=step2(n,t.subTrees.get(1),b+1+lg),f=b+1+lg+ld; n.ensure(f+1); n.eps(b,b+1); n.eps(b,b+1+lg); n.eps(b+lg,f); n.eps(b+lg+ld,f); return 2+lg+ld; }
+    if (t.root==E||t.root==PL) { n.ensure(b+1); int l=step2(n,t.subTrees.get(0),b+1); n.ensure(b+l+2); n.eps(b,b+1); if (t.root==E) n.eps(b,b+1+l); n.eps(b+l,b+1+l); n.eps(b+l,b+1); return 2+l; } return 0;
+  }
+  /** Sous-ensembles ; null (et le compteur step3.gaveup des Stats) au-delà de max états. */
+  static DFAutomaton step3(NDFAutomaton n,int max) { Stage st=Stats.begin(Stats.STEP3); DFAutomaton d=subsets(n,max); if (d==null) Stats.count(Stats.GAVE_UP); Stats.end(st,d==null?0:d.acceptingStates.length); return d; }
+  private static DFAutomaton subsets(NDFAutomaton n,int max) {
+    //SUBSET CONSTRUCTION ON INT ARRAYS: A DFA STATE IS THE SORTED SET OF ITS NFA STATES THAT READ A BYTE (OR ARE FINAL), INTERNED IN StateSets; ALL BYTES OF A CLASS ARE STEPPED AT ONCE
+    int[] cls=n.byteClasses(); int k=cls[255]+1,fin=n.size-1,gen=0; Closures C=new Closures(n); StateSets S=new StateSets(); int[] cnt=new int[k+1],fill=new int[k],tg=new int[16],buf=new int[n.size],mark=new int[n.size],tt=new int[16*k];
+    int[] s0=C.of(0).clone(); java.util.Arrays.sort(s0); S.intern(s0,s0.length);
+    for (int cur=0;cur<S.count;cur++) { int a=S.off[cur],b=S.off[cur+1]; java.util.Arrays.fill(cnt,0); if ((cur+1)*k>tt.length) tt=java.util.Arrays.copyOf(tt,2*tt.length);
+      for (int i=a;i<b;i++) { int q=S.pool[i]; if (n.lo[q]<=n.hi[q]) for (int x=cls[n.lo[q]];x<=cls[n.hi[q]];x++) cnt[x+1]++; } for (int x=0;x<k;x++) cnt[x+1]+=cnt[x]; if (cnt[k]>tg.length) tg=new int[Math.max(cnt[k],2*tg.length)]; System.arraycopy(cnt,0,fill,0,k);
+      for (int i=a;i<b;i++) { int q=S.pool[i]; if (n.lo[q]<=n.hi[q]) for (int x=cls[n.lo[q]];x<=cls[n.hi[q]];x++) tg[fill[x]++]=n.next[q]; }
+      for (int x=0;x<k;x++) { if (++gen==0) { java.util.Arrays.fill(mark,0); gen=1; } int m=0; for (int j=cnt[x];j<cnt[x+1];j++) for (int r:C.of(tg[j])) if (mark[r]!=gen) { mark[r]=gen; buf[m++]=r; }
+        if (m==0) { tt[cur*k+x]=-1; continue; } java.util.Arrays.sort(buf,0,m); tt[cur*k+x]=S.intern(buf,m); if (S.count>max||S.off[S.count]>SETS_MAX) return null; } }
+    boolean[] acc=new boolean[S.count]; int[][] ids=n.tag==null?null:new int[S.count][];
+    for (int i=0;i<S.count;i++) if (ids==null) acc[i]=S.off[i+1]>S.off[i]&&S.pool[S.off[i+1]-1]==fin; else { int m=0; for (int j=S.off[i];j<S.off[i+1];j++) if (n.tag[S.pool[j]]>=0) buf[m++]=n.tag[S.pool[j]]; if (acc[i]=m>0) { ids[i]=java.util.Arrays.copyOf(buf,m); java.util.Arrays.sort(ids[i]); } }
+    return new DFAutomaton(cls,k,java.util.Arrays.copyOf(tt,S.count*k),acc,ids);
+  }
+  static DFAutomaton step4(DFAutomaton d) { Stage st=Stats.begin(Stats.STEP4); DFAutomaton m=hopcroft(d); Stats.end(st,m.acceptingStates.length); return m; }
+  private static DFAutomaton hopcroft(DFAutomaton d) {
+    //HOPCROFT: STATE n IS A SINK FOR THE -1 TRANSITIONS; BLOCK b IS elems[first[b]..end[b]); inv LISTS THE PREDECESSORS OF t ON CLASS c IN inv[is[c*N+t]..is[c*N+t+1])
+    int n=d.acceptingStates.length,k=d.classes,N=n+1,nb=0,wn=0; int[] is=new int[k*N+1],inv=new int[k*N],elems=new int[N],loc=new int[N],blk=new int[N],first=new int[N],end=new int[N],marked=new int[N],W=new int[N],snap=new int[N],touched=new int[N]; boolean[] inW=new boolean[N];
+    for (int s=0;s<N;s++) for (int c=0;c<k;c++) is[c*N+delta(d,s,c)+1]++; for (int i=0;i<k*N;i++) is[i+1]+=is[i]; int[] fill=java.util.Arrays.copyOf(is,k*N); for (int s=0;s<N;s++) for (int c=0;c<k;c++) inv[fill[c*N+delta(d,s,c)]++]=s;
+    nb=groups(d,blk); for (int s=0;s<N;s++) end[blk[s]]++; for (int b=0,o=0;b<nb;b++) { first[b]=o; o+=end[b]; end[b]=first[b]; } for (int s=0;s<N;s++) { loc[s]=end[blk[s]]; elems[end[blk[s]]++]=s; }
+    int big=0; for (int b=1;b<nb;b++) if (end[b]-first[b]>end[big]-first[big]) big=b; for (int b=0;b<nb;b++) if (b!=big) { W[wn++]=b; inW[b]=true; }
+    while (wn>0) { int B=W[--wn],bl=end[B]-first[B]; inW[B]=false; System.arraycopy(elems,first[B],snap,0,bl);
+      for (int c=0;c<k;c++) { int tn=0;
+        for (int x=0;x<bl;x++) for (int j=is[c*N+snap[x]],je=is[c*N+snap[x]+1];j<je;j++) { int s=inv[j],Y=blk[s]; if (marked[Y]==0) touched[tn++]=Y; int p=loc[s],q=first[Y]+marked[Y]++,o=elems[q]; elems[q]=s; loc[s]=q; elems[p]=o; loc[o]=p; }
+        for (int x=0;x<tn;x++) { int Y=touched[x],m=marked[Y]; marked[Y]=0; if (m==end[Y]-first[Y]) continue; int Z=nb++;
+          if (2*m<=end[Y]-first[Y]) { first[Z]=first[Y]; end[Z]=first[Y]+m; first[Y]=end[Z]; } else { first[Z]=first[Y]+m; end[Z]=end[Y]; end[Y]=first[Z]; }
+          for (int j=first[Z];j<end[Z];j++) blk[elems[j]]=Z; W[wn++]=Z; inW[Z]=true; } } }
+    int sink=blk[n],m=0; int[] id=new int[nb]; java.util.Arrays.fill(id,-1); if (blk[0]==sink) { int[] tt=new int[k]; java.util.Arrays.fill(tt,-1); return new DFAutomaton(d.classOf,k,tt,new boolean[1],d.ids==null?null:new int[1][]); } id[blk[0]]=m++; for (int b=0;b<nb;b++) if (b!=sink&&id[b]<0) id[b]=m++;
+    int[] tt=new int[m*k]; boolean[] acc=new boolean[m]; int[][] ids=d.ids==null?null:new int[m][]; for (int b=0;b<nb;b++) if (b!=sink) { int r=elems[first[b]]; acc[id[b]]=d.acceptingStates[r]; if (ids!=null) ids[id[b]]=d.ids[r]; for (int c=0;c<k;c++) tt[id[b]*k+c]=id[blk[delta(d,r,c)]]; } return new DFAutomaton(d.classOf,k,tt,acc,ids);
+  }
+  //INITIAL PARTITION OF step4 IN g: 0 FOR THE NON-ACCEPTING STATES AND THE SINK n, THEN ONE GROUP PER SET OF PATTERN NUMBERS; RETURNS THE NUMBER OF GROUPS
+  private static int groups(DFAutomaton d,int[] g) { java.util.HashMap<String,Integer> m=new java.util.HashMap<>(); m.put("",0); for (int s=0;s<d.acceptingStates.length;s++) { String key=!d.acceptingStates[s]?"":d.ids==null?"*":java.util.Arrays.toString(d.ids[s]); Integer x=m.get(key); if (x==null) m.put(key,x=m.size()); g[s]=x; } g[d.acceptingStates.length]=0; return m.size(); }
+  private static int delta(DFAutomaton d,int s,int c) { int n=d.acceptingStates.length; if (s==n) return n; int t=d.transitionTable[s*d.classes+c]; return t<0?n:t; }
+  private static void flag(char c) { if (c=='r') recursive=true; else if (c=='o') only=true; else if (c=='c') count=true; else if (c=='l') list=true; else if (c=='n') lines=true; else bytes=true; }
+  private static boolean searchFiles(Engine d,Prefilter f,Query q,Follow fw,Pattern p,java.util.List<String> paths,Report o,Out out) throws java.io.IOException { return MappedSearch.search(d,f,q,fw,p,paths,recursive,o,out,threads); }
+  /** Entrée standard, par octets comme les fichiers (StreamSearch), dans un tampon de buffer octets. */
+  static void searchStream(Engine d,Prefilter f,Matcher m,Report o,java.io.InputStream in,Out out) throws java.io.IOException {
+    Stage sc=Stats.scan(); StreamSearch s=new StreamSearch(d,f,m,o,out,buffer); long n=s.search(in); Stats.scanned(sc,"(standard input)",s.base+s.n,n);
+    if (o.list&&n>0) out.write("(standard input)\n".getBytes()); else if (o.count) out.write((n+"\n").getBytes());
+  }
+  static RegExTree unanchored(RegExTree t) { java.util.ArrayList<RegExTree> s=new java.util.ArrayList<>(); s.add(new RegExTree(D,new java.util.ArrayList<>())); java.util.ArrayList<RegExTree> u=new java.util.ArrayList<>(); u.add(new RegExTree(E,s)); u.add(t); return new RegExTree(C,u); }
+}
+class Closures {
+  //EPSILON-CLOSURE OF ONE NFA STATE, REDUCED TO THE STATES THAT READ A BYTE (OR THE FINAL ONE); CACHED WHILE LESS THAN BUDGET INTS ARE KEPT
+  static final int BUDGET=1<<22;
+  final NDFAutomaton n; final int[][] memo; final int[] mark,stack,buf; int gen; long used;
+  Closures(NDFAutomaton n) { this.n=n; memo=new int[n.size][]; mark=new int[n.size]; stack=new int[n.size]; buf=new int[n.size]; }
+  int[] of(int q) {
+    int[] r=memo[q]; if (r!=null) return r; if (++gen==0) { java.util.Arrays.fill(mark,0); gen=1; } int sp=0,m=0; mark[q]=gen; stack[sp++]=q;
+    while (sp>0) { int p=stack[--sp]; if (n.lo[p]<=n.hi[p]||n.tag(p)>=0) buf[m++]=p; int e=n.eps0[p]; if (e>=0&&mark[e]!=gen) { mark[e]=gen; stack[sp++]=e; } e=n.eps1[p]; if (e>=0&&mark[e]!=gen) { mark[e]=gen; stack[sp++]=e; } }
+    r=java.util.Arrays.copyOf(buf,m); if (used+m<=BUDGET) { memo[q]=r; used+=m; } return r;
+  }
+}
+class StateSets {
+  //SORTED int SETS STORED END TO END IN pool (SET i IS pool[off[i]..off[i+1])), INTERNED BY OPEN ADDRESSING IN slots (-1 = EMPTY)
+  int[] pool=new int[256],off=new int[17],slots=new int[64]; int count;
+  StateSets() { java.util.Arrays.fill(slots,-1); }
+  int intern(int[] a,int m) {
+    int h=hash(a,0,m),i=h&(slots.length-1); for (;slots[i]>=0;i=(i+1)&(slots.length-1)) { int s=slots[i]; if (off[s+1]-off[s]==m&&java.util.Arrays.equals(pool,off[s],off[s+1],a,0,m)) return s; }
+    if (off[count]+m>pool.length) pool=java.util.Arrays.copyOf(pool,Math.max(off[count]+m,2*pool.length)); if (count+2>off.length) off=java.util.Arrays.copyOf(off,2*off.length);
+    System.arraycopy(a,0,pool,off[count],m); off[count+1]=off[count]+m; slots[i]=count++;
+    if (2*count>slots.length) { slots=new int[2*slots.length]; java.util.Arrays.fill(slots,-1); for (int s=0;s<count;s++) { int j=hash(pool,off[s],off[s+1])&(slots.length-1); while (slots[j]>=0) j=(j+1)&(slots.length-1); slots[j]=s; } }
+    return count-1;
+  }
+  private static int hash(int[] a,int from,int to) { int h=to-from; for (int i=from;i<to;i++) h=31*h+a[i]; h*=0x9E3779B9; return h^h>>>16; }
 }
-class RegExTree { int root; java.util.ArrayList<RegExTree> subTrees; RegExTree(int r,java.util.ArrayList<RegExTree> s) { root=r; subTrees=s; } }
-class NDFAutomaton { int[][] transitionTable; java.util.ArrayList<Integer>[] epsilonTransitionTable; NDFAutomaton(int[][] t,java.util.ArrayList<Integer>[] e) { transitionTable=t; epsilonTransitionTable=e; } }
-class DFAutomaton { int[][] transitionTable; boolean[] acceptingStates; DFAutomaton(int[][] t,boolean[] a) { transitionTable=t; acceptingStates=a; } }
@@ -0,0 +1,28 @@
+/**
+ * Moteur de parcours par octets utilisé par les recherches. st est l'état courant, 0 est toujours l'état initial
+ * et '\n', '\r' ramènent toujours à 0. Un moteur est modifiable : une instance par thread (copy()).
+ */
+abstract class Engine {
+  int st;
+  abstract int next(int s,int c);
+  abstract boolean accept(int s);
+  abstract Engine copy();
+  /** Numéros des motifs reconnus dans l'état acceptant s (MultiPattern) ; {0} quand il n'y a qu'un motif. Le tableau peut être réutilisé : valable jusqu'à l'appel suivant. */
+  abstract int[] ids(int s);
+  static final int[] ONE={0},NONE={};
+  //ARRAYS RETURNED BY THE ENGINES THAT BUILD ids ON THE FLY (LazyDFA, Glushkov): ONE PER LENGTH, REUSED, SO ids ALLOCATES NOTHING ONCE A LENGTH WAS SEEN
+  private int[][] sized;
+  int[] sized(int m) { if (sized==null||m>=sized.length) sized=java.util.Arrays.copyOf(sized==null?new int[0][]:sized,m+1); int[] r=sized[m]; return r!=null?r:(sized[m]=new int[m]); }
+  /** Vrai si aucun état acceptant n'est plus atteignable depuis s (seul un moteur ancré en a : Pattern). */
+  boolean dead(int s) { return false; }
+  /** État après le caractère s[i] depuis q, pour une entrée en String : au-delà de l'alphabet (0x80 en UTF-8, 0x100 sinon), ses octets UTF-8, comme dans le motif. Une paire de substitution est lue sur son premier char, le second ne change rien. */
+  int next(int q,CharSequence s,int i,boolean utf8) {
+    char c=s.charAt(i); if (c<(utf8?0x80:0x100)) return next(q,c); if (Character.isLowSurrogate(c)&&i>0&&Character.isHighSurrogate(s.charAt(i-1))) return q;
+    int p=Character.isHighSurrogate(c)&&i+1<s.length()&&Character.isLowSurrogate(s.charAt(i+1))?Character.toCodePoint(c,s.charAt(i+1)):c;
+    if (p<0x800) return next(next(q,0xC0|p>>6),0x80|p&0x3F);
+    if (p<0x10000) return next(next(next(q,0xE0|p>>12),0x80|p>>6&0x3F),0x80|p&0x3F);
+    return next(next(next(next(q,0xF0|p>>18),0x80|p>>12&0x3F),0x80|p>>6&0x3F),0x80|p&0x3F);
+  }
+  /** Avance sur b[i..m) depuis st ; renvoie l'indice de l'octet qui atteint un état acceptant, ou m. */
+  int run(java.nio.ByteBuffer b,int i,int m) { int s=st; for (;i<m;i++) { s=next(s,b.get(i)&0xFF); if (accept(s)) break; } st=s; return i; }
+}
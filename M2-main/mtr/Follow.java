@@ -0,0 +1,113 @@
+/**
+ * Points de reprise (--resume, --follow), pour relancer souvent la même recherche sur des journaux qui grandissent :
+ * pour chaque fichier et chaque liste de motifs, un petit fichier (dossier dir) garde l'identité du fichier (inode),
+ * la position après la dernière fin de ligne lue, le nombre de lignes avant elle (pour -n) et le CRC32 des TAIL octets
+ * qui la précèdent. Le DFA repart de l'état 0 à chaque '\n' : à cette position son état est l'état initial, il n'y a
+ * rien d'autre à garder. MappedSearch demande à parts la partie à lire (comme à TrigramIndex) : de la reprise à la
+ * dernière fin de ligne, une ligne pas encore finie attend le passage suivant ; un fichier remplacé (autre inode),
+ * raccourci ou réécrit (CRC différent) est relu depuis le début. Une reprise ne compte qu'une fois toutes les parties
+ * du fichier lues sans erreur (searched), et save ne l'écrit qu'après que la sortie a été vidée : rien n'est sauté.
+ * Avec --follow, follow attend ensuite les modifications (WatchService sur les dossiers des fichiers, sans scruter)
+ * et relance la recherche sur les seuls fichiers modifiés ou créés.
+ */
+final class Follow {
+  static final int VERSION=1,MAGIC=0x45474650,TAIL=1<<12,DELAY=50;
+  /** Dossier des reprises (null : aucune) : propriété egrep.follow, variable EGREP_FOLLOW, sinon ~/.cache/egrepv1/follow. */
+  static java.nio.file.Path dir=defaultDir();
+  private static java.nio.file.Path defaultDir() {
+    String d=System.getProperty("egrep.follow",System.getenv("EGREP_FOLLOW")); if (d!=null) return d.isEmpty()?null:java.nio.file.Paths.get(d);
+    return java.nio.file.Paths.get(System.getProperty("user.home"),".cache","egrepv1","follow");
+  }
+  /** Un passage de la recherche sur une liste de fichiers (MappedSearch.search avec ce Follow). */
+  interface Pass { boolean search(java.util.List<String> paths) throws java.io.IOException; }
+  //pending: RANGES GIVEN BY parts, NOT YET SEARCHED; done: RANGES SEARCHED WITHOUT ERROR, WRITTEN BY save
+  private final String patterns; private final java.util.Map<java.nio.file.Path,Mark> pending=new java.util.HashMap<>(),done=new java.util.LinkedHashMap<>();
+  Follow(java.util.List<String> patterns) { this.patterns=String.join("\n",patterns); }
+  /** Partie de f (n octets) à lire : {de la reprise, à la dernière fin de ligne, lignes avant la reprise} ; null (tout lire) sans dossier ou en cas d'erreur. */
+  long[] parts(java.nio.file.Path f,long n) {
+    if (dir==null) return null;
+    try (java.nio.channels.FileChannel ch=java.nio.channels.FileChannel.open(f)) {
+      String id=String.valueOf(java.nio.file.Files.readAttributes(f,java.nio.file.attribute.BasicFileAttributes.class).fileKey()); byte[] key=key(f);
+      Mark m=load(dir.resolve(name(key)),key); if (m==null||!m.id.equals(id)||m.at>n||crc(ch,m.at)!=m.crc) m=new Mark(id,0,0,0);
+      long to=end(ch,m.at,n); pending.put(f,new Mark(id,to,m.lines+newlines(ch,m.at,to),crc(ch,to))); return new long[]{m.at,to,m.lines};
+    } catch (java.io.IOException|RuntimeException e) { return null; }
+  }
+  /** Une partie de f a été lue (ok : sans erreur) ; une seule erreur et la reprise de f reste où elle était. */
+  void searched(java.nio.file.Path f,boolean ok) { Mark m=pending.remove(f); if (!ok) done.remove(f); else if (m!=null) done.put(f,m); }
+  /** Écrit les reprises des fichiers lus sans erreur depuis le dernier appel ; à appeler quand leurs lignes sont sorties. */
+  void save() { for (java.util.Map.Entry<java.nio.file.Path,Mark> e:done.entrySet()) { byte[] key=key(e.getKey()); store(dir.resolve(name(key)),e.getValue().bytes(key)); } done.clear(); pending.clear(); }
+  /** --follow : attend les modifications des fichiers de paths (et, avec -r, de leurs dossiers) et relance pass sur ceux qui ont changé, puis save ; ne rend pas la main. */
+  void follow(java.util.List<String> paths,boolean recursive,Pass pass,Out out) throws java.io.IOException,InterruptedException {
+    java.nio.file.WatchService ws=java.nio.file.FileSystems.getDefault().newWatchService();
+    //FILES: ABSOLUTE PATH -> PATH AS GIVEN; KEYS: WATCHED DIRECTORY -> {ABSOLUTE, AS WALKED BY MappedSearch (null: ONLY FOR THE FILES GIVEN)}
+    java.util.Map<java.nio.file.Path,String> files=new java.util.HashMap<>(); java.util.Map<java.nio.file.WatchKey,java.nio.file.Path[]> keys=new java.util.HashMap<>();
+    for (String s:paths) {
+      java.nio.file.Path q=java.nio.file.Paths.get(s);
+      if (!java.nio.file.Files.isDirectory(q)) { files.put(abs(q),s); watch(ws,keys,abs(q).getParent(),null); }
+      else if (recursive) try (java.util.stream.Stream<java.nio.file.Path> w=java.nio.file.Files.walk(q)) { for (java.nio.file.Path d:(Iterable<java.nio.file.Path>)w.filter(java.nio.file.Files::isDirectory)::iterator) watch(ws,keys,abs(d),d); }
+    }
+    for (;;) {
+      //THE FIRST EVENT WAKES THE LOOP, THOSE OF THE NEXT DELAY MS JOIN IT: A WRITER APPENDING LINE BY LINE MAKES ONE PASS, NOT ONE PER LINE
+      java.util.Set<String> changed=new java.util.TreeSet<>(); java.nio.file.WatchKey k=ws.take(); long until=System.nanoTime()+DELAY*1000000L;
+      for (;k!=null;k=ws.poll(Math.max(0,until-System.nanoTime()),java.util.concurrent.TimeUnit.NANOSECONDS)) {
+        java.nio.file.Path[] d=keys.get(k);
+        for (java.nio.file.WatchEvent<?> e:k.pollEvents()) {
+          if (e.kind()==java.nio.file.StandardWatchEventKinds.OVERFLOW) { changed.addAll(files.values()); continue; }
+          java.nio.file.Path x=(java.nio.file.Path)e.context(),a=d[0].resolve(x); String s=files.get(a);
+          if (s!=null) changed.add(s);
+          else if (d[1]!=null) { java.nio.file.Path g=d[1].resolve(x); if (java.nio.file.Files.isDirectory(g)) watch(ws,keys,a,g); else if (java.nio.file.Files.isRegularFile(g)) changed.add(g.toString()); }
+        }
+        if (!k.reset()) keys.remove(k);
+      }
+      if (!changed.isEmpty()) { pass.search(new java.util.ArrayList<>(changed)); out.flush(); save(); }
+    }
+  }
+  private static void watch(java.nio.file.WatchService ws,java.util.Map<java.nio.file.WatchKey,java.nio.file.Path[]> keys,java.nio.file.Path a,java.nio.file.Path d) throws java.io.IOException {
+    //REGISTERING A DIRECTORY AGAIN GIVES THE SAME KEY: ONE WALKED BY -r KEEPS ITS WALKED PATH
+    java.nio.file.WatchKey k=a.register(ws,java.nio.file.StandardWatchEventKinds.ENTRY_CREATE,java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY); if (d!=null||!keys.containsKey(k)) keys.put(k,new java.nio.file.Path[]{a,d});
+  }
+  private static java.nio.file.Path abs(java.nio.file.Path p) { return p.toAbsolutePath().normalize(); }
+  //END OF THE LAST COMPLETE LINE OF [from,n): AFTER ITS '\n', READ BACKWARDS; from IF THERE IS NONE
+  private static long end(java.nio.channels.FileChannel ch,long from,long n) throws java.io.IOException {
+    java.nio.ByteBuffer r=java.nio.ByteBuffer.allocate(1<<16);
+    for (long e=n;e>from;) { long s=Math.max(from,e-r.capacity()); r.clear().limit((int)(e-s)); while (r.hasRemaining()) if (ch.read(r,s+r.position())<0) return from; for (int i=(int)(e-s)-1;i>=0;i--) if (r.get(i)=='\n') return s+i+1; e=s; }
+    return from;
+  }
+  private static long newlines(java.nio.channels.FileChannel ch,long from,long to) throws java.io.IOException {
+    byte[] a=new byte[1<<20]; java.nio.ByteBuffer r=java.nio.ByteBuffer.wrap(a); long k=0;
+    for (long pos=from;pos<to;) { r.clear().limit((int)Math.min(a.length,to-pos)); int m=ch.read(r,pos); if (m<=0) break; for (int i=0;i<m;i++) if (a[i]=='\n') k++; pos+=m; }
+    return k;
+  }
+  //CRC32 OF THE (AT MOST) TAIL BYTES BEFORE n, AS IN TrigramIndex: A FILE REWRITTEN IN PLACE HAS ANOTHER ONE
+  private static long crc(java.nio.channels.FileChannel ch,long n) throws java.io.IOException {
+    java.nio.ByteBuffer r=java.nio.ByteBuffer.allocate((int)Math.min(n,TAIL)); while (r.hasRemaining()) if (ch.read(r,n-r.capacity()+r.position())<0) break;
+    java.util.zip.CRC32 c=new java.util.zip.CRC32(); c.update(r.flip()); return c.getValue();
+  }
+  //A CHECKPOINT IS PER FILE AND PER LIST OF PATTERNS: THE ABSOLUTE PATH, '\0', THE PATTERNS; THE FILE NAME HASHES IT AS TrigramIndex.name DOES
+  private byte[] key(java.nio.file.Path f) { return (abs(f)+"\0"+patterns).getBytes(java.nio.charset.StandardCharsets.UTF_8); }
+  private static String name(byte[] k) { java.util.zip.CRC32 c=new java.util.zip.CRC32(); c.update(k); return Long.toHexString(c.getValue()<<32|java.util.Arrays.hashCode(k)&0xFFFFFFFFL)+".ckp"; }
+  private static Mark load(java.nio.file.Path x,byte[] key) {
+    try (java.io.DataInputStream in=new java.io.DataInputStream(new java.io.ByteArrayInputStream(java.nio.file.Files.readAllBytes(x)))) {
+      if (in.readInt()!=MAGIC||in.readInt()!=VERSION) return null; Mark m=new Mark(in.readUTF(),in.readLong(),in.readLong(),in.readLong());
+      byte[] k=new byte[in.readInt()]; in.readFully(k); return java.util.Arrays.equals(k,key)?m:null;
+    } catch (java.io.IOException|RuntimeException e) { return null; } //MISSING, TRUNCATED OR FOREIGN FILE: THE WHOLE FILE IS READ AGAIN
+  }
+  //WRITTEN TO A TEMPORARY FILE THEN RENAMED, AS IN PatternCache; A FAILED WRITE ONLY MEANS THE NEXT RUN READS MORE
+  private static void store(java.nio.file.Path x,byte[] b) {
+    java.nio.file.Path t=null;
+    try { java.nio.file.Files.createDirectories(dir); t=java.nio.file.Files.createTempFile(dir,"part",".tmp"); java.nio.file.Files.write(t,b); java.nio.file.Files.move(t,x,java.nio.file.StandardCopyOption.REPLACE_EXISTING,java.nio.file.StandardCopyOption.ATOMIC_MOVE); }
+    catch (java.io.IOException e) { if (t!=null) try { java.nio.file.Files.deleteIfExists(t); } catch (java.io.IOException y) { } }
+  }
+}
+/** Reprise d'un fichier : son identité (fileKey, l'inode), la position après la dernière fin de ligne lue, les lignes avant elle, le CRC32 de ce qui la précède. */
+final class Mark {
+  final String id; final long at,lines,crc;
+  Mark(String id,long at,long lines,long crc) { this.id=id; this.at=at; this.lines=lines; this.crc=crc; }
+  //LAYOUT: MAGIC VERSION | ID (UTF) AT LINES CRC | KEY LENGTH, KEY
+  byte[] bytes(byte[] key) {
+    java.io.ByteArrayOutputStream o=new java.io.ByteArrayOutputStream(); java.io.DataOutputStream w=new java.io.DataOutputStream(o);
+    try { w.writeInt(Follow.MAGIC); w.writeInt(Follow.VERSION); w.writeUTF(id); w.writeLong(at); w.writeLong(lines); w.writeLong(crc); w.writeInt(key.length); w.write(key); }
+    catch (java.io.IOException e) { throw new java.io.UncheckedIOException(e); }
+    return o.toByteArray();
+  }
+}
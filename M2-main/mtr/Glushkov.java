@@ -0,0 +1,65 @@
+/**
+ * Automate de Glushkov simulé en parallèle sur les bits (Shift-And généralisé), pour les motifs d'au plus MAX
+ * positions (feuilles de l'arbre, donc octets) : l'ensemble des positions actives tient dans un long. On n'entre
+ * dans une position que par son octet, donc un pas est D' = suivants(D) & B[c] : B[c] donne les positions qui lisent
+ * c, et suivants(D), l'union des follow des positions de D, se lit dans une table par tranche de 8 positions
+ * (1, 2, 4 ou 8 tranches, une boucle déroulée pour chaque cas).
+ * La compilation est une passe sur l'arbre, sans step2, step3 ni step4. Comme LazyDFA en mode NFA, l'état vit dans
+ * le moteur : next renvoie 0 pour l'état initial, 1 sinon (-1 : mort, moteur ancré), valable jusqu'au pas suivant.
+ */
+class Glushkov extends Engine {
+  static final int MAX=64;
+  final long[] t,b,last; final boolean[] nul; final long first,fin; final int chunks; final boolean anchored,nullable; private long d;
+  private Glushkov(long[] t,long[] b,long[] last,boolean[] nul,long first,int chunks,boolean anchored) {
+    this.t=t; this.b=b; this.last=last; this.nul=nul; this.first=first; this.chunks=chunks; this.anchored=anchored; long f=0; boolean z=false; for (int i=0;i<last.length;i++) { f|=last[i]; z|=nul[i]; } fin=f; nullable=z;
+  }
+  /** Moteur pour les motifs ts (recherche non ancrée, ou ancrée pour Pattern), ou null s'ils ont plus de MAX positions en tout. */
+  static Glushkov of(java.util.List<RegExTree> ts,boolean anchored) {
+    int m=positions(ts); if (m>MAX) return null;
+    Stage st=Stats.begin(Stats.GLUSHKOV); int N=ts.size(); long[] follow=new long[Math.max(m,1)],b=new long[256],last=new long[N],r=new long[3]; boolean[] nul=new boolean[N]; long first=0; int[] p={0};
+    for (int i=0;i<N;i++) { walk(ts.get(i),follow,b,p,r); first|=r[0]; last[i]=r[1]; nul[i]=r[2]!=0; }
+    //t[k*256+x]: UNION OF THE follow OF THE POSITIONS 8k+j FOR THE BITS j OF x, BUILT FROM x WITHOUT ITS LOWEST BIT; THE UNANCHORED SEARCH RE-ENTERS first AT EVERY BYTE (THE .* IN FRONT)
+    int chunks=m<=8?1:m<=16?2:m<=32?4:8; long[] t=new long[chunks<<8];
+    for (int k=0;k<chunks;k++) for (int x=1;x<256;x++) { int q=8*k+Integer.numberOfTrailingZeros(x); t[k<<8|x]=t[k<<8|x&x-1]|(q<m?follow[q]:0); }
+    if (!anchored) for (int x=0;x<256;x++) t[x]|=first;
+    b['\n']=b['\r']=0; Glushkov g=new Glushkov(t,b,last,nul,first,chunks,anchored); Stats.end(st,m); return g;
+  }
+  /** Nombre de positions (feuilles) des motifs ts, sans compter au-delà de MAX+1. */
+  static int positions(java.util.List<RegExTree> ts) {
+    int k=0; java.util.ArrayDeque<RegExTree> s=new java.util.ArrayDeque<>(ts);
+    while (!s.isEmpty()&&k<=MAX) { RegExTree x=s.pop(); if (x.subTrees.isEmpty()) k++; else for (RegExTree y:x.subTrees) s.push(y); } return k;
+  }
+  //GLUSHKOV SETS OF t IN r: first, last, nullable; NUMBERS THE LEAVES FROM p[0], FILLS THEIR BYTES IN b AND THE follow OF THE POSITIONS OF t
+  private static void walk(RegExTree t,long[] follow,long[] b,int[] p,long[] r) {
+    if (t.subTrees.isEmpty()) { long bit=1L<<p[0]++; int lo=t.root==EgrepV1.R?t.lo:t.root==EgrepV1.D?0:t.root,hi=t.root==EgrepV1.R?t.hi:t.root==EgrepV1.D?255:t.root; for (int c=lo;c<=hi;c++) b[c]|=bit; r[0]=r[1]=bit; r[2]=0; return; }
+    walk(t.subTrees.get(0),follow,b,p,r); long f=r[0],l=r[1],n=r[2];
+    if (t.root==EgrepV1.E||t.root==EgrepV1.PL) { link(follow,l,f); if (t.root==EgrepV1.E) r[2]=1; return; }
+    walk(t.subTrees.get(1),follow,b,p,r);
+    if (t.root==EgrepV1.A) { r[0]|=f; r[1]|=l; r[2]|=n; return; }
+    link(follow,l,r[0]); long f2=r[0],l2=r[1],n2=r[2]; r[0]=n!=0?f|f2:f; r[1]=n2!=0?l|l2:l2; r[2]=n&n2;
+  }
+  private static void link(long[] follow,long from,long to) { for (long x=from;x!=0;x&=x-1) follow[Long.numberOfTrailingZeros(x)]|=to; }
+  private long step(long d,int c) { long f=0; for (int k=0;k<chunks;k++) f|=t[k<<8|(int)(d>>>(k<<3))&255]; return f&b[c]; }
+  int next(int s,int c) {
+    if (anchored) { if (s<0) return -1; d=s==0?first&b[c]:step(d,c); return d==0?-1:1; }
+    d=step(s==0?0:d,c); return d==0?0:1;
+  }
+  boolean accept(int s) { return s==0?nullable:s>0&&((d&fin)!=0||!anchored&&nullable); }
+  boolean dead(int s) { return s<0; }
+  Engine copy() { return new Glushkov(t,b,last,nul,first,chunks,anchored); }
+  int[] ids(int s) {
+    if (!accept(s)) return NONE; if (last.length==1) return ONE; int m=0;
+    for (int i=0;i<last.length;i++) if (s==0?nul[i]:(d&last[i])!=0||!anchored&&nul[i]) m++; int[] o=sized(m); m=0;
+    for (int i=0;i<last.length;i++) if (s==0?nul[i]:(d&last[i])!=0||!anchored&&nul[i]) o[m++]=i; return o;
+  }
+  //ONE TABLE LOOKUP PER 8 POSITIONS AND ONE MASK PER BYTE, NO BRANCH BUT THE ACCEPTING TEST
+  int run(java.nio.ByteBuffer bb,int i,int m) {
+    if (anchored||nullable) return super.run(bb,i,m); //NULLABLE: EVERY STATE ACCEPTS
+    long[] t=this.t,b=this.b; long d=st==0?0:this.d,f=fin; int n=chunks;
+    if (n==1) for (;i<m;i++) { d=t[(int)d&255]&b[bb.get(i)&255]; if ((d&f)!=0) break; }
+    else if (n==2) for (;i<m;i++) { d=(t[(int)d&255]|t[256|(int)(d>>>8)&255])&b[bb.get(i)&255]; if ((d&f)!=0) break; }
+    else if (n==4) for (;i<m;i++) { int x=(int)d; d=(t[x&255]|t[256|x>>>8&255]|t[512|x>>>16&255]|t[768|x>>>24])&b[bb.get(i)&255]; if ((d&f)!=0) break; }
+    else for (;i<m;i++) { int x=(int)d,y=(int)(d>>>32); d=(t[x&255]|t[256|x>>>8&255]|t[512|x>>>16&255]|t[768|x>>>24]|t[1024|y&255]|t[1280|y>>>8&255]|t[1536|y>>>16&255]|t[1792|y>>>24])&b[bb.get(i)&255]; if ((d&f)!=0) break; }
+    this.d=d; st=d==0?0:1; return i;
+  }
+}
@@ -0,0 +1,113 @@
+/**
+ * Fichier gzip lu comme un flux d'octets, pour StreamSearch : la décompression (Inflater) tourne sur d'autres threads
+ * et remplit des tampons réutilisables pendant que le DFA parcourt les précédents. Chaque segment du fichier compressé
+ * a sa file bornée de QUEUE tampons de SIZE octets, qui passent de free (vides) à full (pleins) et reviennent.
+ * Un fichier de plusieurs membres gzip (cat a.gz b.gz, bgzip, pigz -i) est coupé, avec plus d'un thread, aux
+ * en-têtes possibles distants d'au moins SEGMENT octets : chaque segment est décompressé en avance par son thread,
+ * et lu dans l'ordre. Un « en-tête » trouvé au milieu de données compressées n'en est pas un : le segment d'avant
+ * finit alors plus loin, et les segments qui commencent avant sa fin sont abandonnés. Le CRC32 et la taille de
+ * chaque membre sont vérifiés ; des octets qui ne sont pas un membre après le dernier sont ignorés, comme gzip.
+ * Un segment n'a de tampons que pendant qu'il tourne : ils sont alloués par run et rendus quand le segment est lu ou
+ * abandonné, donc la mémoire suit le nombre de threads et non le nombre de segments du fichier.
+ */
+final class Gunzip extends java.io.InputStream {
+  static final int SIZE=1<<18,QUEUE=4,SEGMENT=1<<22;
+  private final java.nio.file.Path f; private final long n; private final java.util.concurrent.ExecutorService pool; private final java.util.List<Segment> S=new java.util.ArrayList<>();
+  //cur: SEGMENT BEING READ, c: ITS CHUNK, i: READ POSITION IN c; next: FIRST SEGMENT OF S NOT STARTED BY THE READER; pos: WHERE THE LAST SEGMENT READ ENDED
+  private Segment cur; private Chunk c; private int i,next; private long pos;
+  /** f (n octets, commençant par un en-tête gzip) décompressé par threads threads au plus. */
+  Gunzip(java.nio.file.Path f,long n,int threads) throws java.io.IOException {
+    this.f=f; this.n=n; pool=java.util.concurrent.Executors.newFixedThreadPool(Math.max(1,threads),r->{ Thread t=new Thread(r,"gunzip"); t.setDaemon(true); return t; });
+    java.util.List<Long> at=threads>1&&n>=2L*SEGMENT?starts(f,n):java.util.List.of(0L);
+    for (int k=0;k<at.size();k++) { Segment s=new Segment(f,n,at.get(k),k+1<at.size()?at.get(k+1):n); S.add(s); s.task=pool.submit(s); }
+  }
+  /** f commence-t-il par un en-tête gzip (1f 8b 08) ? */
+  static boolean is(java.nio.file.Path f,long n) {
+    if (n<18) return false;
+    try (java.nio.channels.FileChannel ch=java.nio.channels.FileChannel.open(f)) { java.nio.ByteBuffer b=java.nio.ByteBuffer.allocate(3); ch.read(b,0); return b.get(0)==0x1f&&b.get(1)==(byte)0x8b&&b.get(2)==8; }
+    catch (java.io.IOException e) { return false; }
+  }
+  //0, THEN THE FIRST OFFSET AT LEAST SEGMENT AFTER THE PREVIOUS ONE THAT LOOKS LIKE A MEMBER HEADER: 1f 8b 08, NO RESERVED FLAG, A KNOWN OS BYTE
+  static java.util.List<Long> starts(java.nio.file.Path f,long n) throws java.io.IOException {
+    java.util.List<Long> L=new java.util.ArrayList<>(); L.add(0L);
+    try (java.nio.channels.FileChannel ch=java.nio.channels.FileChannel.open(f)) {
+      for (long p=SEGMENT;p+10<=n;) {
+        int m=(int)Math.min(MappedSearch.WINDOW,n-p),i=0; java.nio.MappedByteBuffer b=ch.map(java.nio.channels.FileChannel.MapMode.READ_ONLY,p,m);
+        while (i+10<=m&&!(b.get(i)==0x1f&&b.get(i+1)==(byte)0x8b&&b.get(i+2)==8&&(b.get(i+3)&0xE0)==0&&((b.get(i+9)&0xFF)<=13||b.get(i+9)==-1))) i++;
+        if (i+10<=m) { L.add(p+i); p+=i+SEGMENT; } else p+=Math.max(1,m-9);
+      }
+    }
+    return L;
+  }
+  public int read() throws java.io.IOException { byte[] o=new byte[1]; return read(o,0,1)<0?-1:o[0]&0xFF; }
+  public int read(byte[] b,int off,int len) throws java.io.IOException {
+    if (len==0) return 0;
+    while (c==null||i==c.n) { if (c!=null) cur.free.add(c); c=null; if (!advance()) return -1; }
+    int k=Math.min(len,c.n-i); System.arraycopy(c.b,i,b,off,k); i+=k; return k;
+  }
+  public int available() { return c==null?0:c.n-i; }
+  public void close() { for (Segment s:S) s.cancel(); if (cur!=null) cur.cancel(); pool.shutdownNow(); }
+  //NEXT FULL CHUNK IN c. A SEGMENT ENDS WHERE ITS LAST MEMBER ENDS: THE NEXT ONE READ MUST START THERE, THE ONES BEFORE ARE DROPPED;
+  //IF NONE DOES (THE FALSE HEADER WAS THE ONE KEPT), A NEW SEGMENT STARTS THERE ON ITS OWN THREAD (THOSE OF pool MAY ALL WAIT FOR THE READER)
+  private boolean advance() throws java.io.IOException {
+    try {
+      for (;;) {
+        if (cur==null) {
+          if (pos>=n) return false;
+          while (next<S.size()&&S.get(next).from<pos) S.get(next++).cancel();
+          if (next<S.size()&&S.get(next).from==pos) cur=S.get(next++);
+          else { cur=new Segment(f,n,pos,next<S.size()?S.get(next).from:n); java.util.concurrent.FutureTask<?> t=new java.util.concurrent.FutureTask<>(cur,null); cur.task=t; Thread h=new Thread(t,"gunzip"); h.setDaemon(true); h.start(); }
+        }
+        c=cur.full.take(); if (c!=Chunk.END) { i=0; return true; }
+        c=null; if (cur.fail!=null) throw cur.fail; pos=cur.end; cur.free.clear(); cur=null;
+      }
+    } catch (InterruptedException e) { Thread.currentThread().interrupt(); throw new java.io.InterruptedIOException(); }
+  }
+}
+/** Membres gzip à partir de from, décompressés jusqu'au premier qui finit en to ou plus loin (end : sa fin, n s'il n'y a plus de membre). */
+final class Segment implements Runnable {
+  final java.nio.file.Path f; final long n,from,to; final java.util.concurrent.ArrayBlockingQueue<Chunk> free=new java.util.concurrent.ArrayBlockingQueue<>(Gunzip.QUEUE),full=new java.util.concurrent.ArrayBlockingQueue<>(Gunzip.QUEUE+1);
+  volatile long end; volatile java.io.IOException fail; java.util.concurrent.Future<?> task;
+  //in[k..m) ARE THE FILE BYTES FROM at+k NOT YET USED; in ONLY EXISTS WHILE run RUNS
+  private byte[] in; private int k,m; private long at; private java.nio.channels.FileChannel ch;
+  Segment(java.nio.file.Path f,long n,long from,long to) { this.f=f; this.n=n; this.from=from; this.to=to; }
+  //A DROPPED SEGMENT GIVES BACK ITS CHUNKS (ITS THREAD, INTERRUPTED, MAY STILL HOLD ONE UNTIL IT RETURNS)
+  void cancel() { if (task!=null) task.cancel(true); free.clear(); full.clear(); }
+  public void run() {
+    java.util.zip.Inflater z=new java.util.zip.Inflater(true); java.util.zip.CRC32 crc=new java.util.zip.CRC32();
+    try (java.nio.channels.FileChannel c=java.nio.channels.FileChannel.open(f)) {
+      ch=c; at=from; in=new byte[1<<16]; for (int j=0;j<Gunzip.QUEUE;j++) free.add(new Chunk()); Chunk o=free.take();
+      for (;;) {
+        header(); z.reset(); crc.reset(); long size=0;
+        while (!z.finished()) {
+          if (z.needsInput()) { if (k==m&&!fill()) throw new java.util.zip.ZipException("unexpected end of file"); z.setInput(in,k,m-k); k=m; }
+          int r=z.inflate(o.b,o.n,o.b.length-o.n); if (r==0&&z.needsDictionary()) throw new java.util.zip.ZipException("invalid compressed data--format violated");
+          crc.update(o.b,o.n,r); o.n+=r; size+=r; if (o.n==o.b.length) { full.put(o); o=free.take(); o.n=0; }
+        }
+        k=m-z.getRemaining();
+        if (u4()!=(int)crc.getValue()) throw new java.util.zip.ZipException("invalid compressed data--crc error"); if (u4()!=(int)size) throw new java.util.zip.ZipException("invalid compressed data--length error");
+        long p=at+k; if (!member(p)) { end=n; break; } if (p>=to) { end=p; break; }
+      }
+      if (o.n>0) full.put(o);
+    } catch (java.util.zip.DataFormatException e) { fail=new java.util.zip.ZipException("invalid compressed data--format violated"); }
+    catch (java.io.IOException e) { fail=e; }
+    //ANY OTHER FAILURE (OutOfMemoryError...) MUST STILL REACH THE READER, WHICH WOULD OTHERWISE WAIT FOR END FOREVER
+    catch (RuntimeException|Error e) { fail=new java.io.IOException(e.toString(),e); }
+    catch (InterruptedException e) { return; }
+    finally { z.end(); in=null; }
+    full.offer(Chunk.END);
+  }
+  //ID1 ID2 CM FLG MTIME XFL OS, THEN WHAT FLG ANNOUNCES: FEXTRA (XLEN BYTES), FNAME AND FCOMMENT (ZERO-TERMINATED), FHCRC
+  private void header() throws java.io.IOException {
+    if (get()!=0x1f||get()!=0x8b) throw new java.util.zip.ZipException("not in gzip format"); if (get()!=8) throw new java.util.zip.ZipException("unknown method");
+    int flg=get(); for (int j=0;j<6;j++) get(); if ((flg&4)!=0) for (int x=get()|get()<<8;x>0;x--) get();
+    if ((flg&8)!=0) while (get()!=0); if ((flg&16)!=0) while (get()!=0); if ((flg&2)!=0) { get(); get(); }
+  }
+  //DOES A MEMBER START AT p? ANYTHING ELSE AFTER A MEMBER IS TRAILING GARBAGE
+  private boolean member(long p) throws java.io.IOException { if (p+2>n) return false; java.nio.ByteBuffer b=java.nio.ByteBuffer.allocate(2); ch.read(b,p); return b.get(0)==0x1f&&b.get(1)==(byte)0x8b; }
+  private boolean fill() throws java.io.IOException { at+=m; k=m=0; int r=ch.read(java.nio.ByteBuffer.wrap(in),at); if (r<=0) return false; m=r; return true; }
+  private int get() throws java.io.IOException { if (k==m&&!fill()) throw new java.util.zip.ZipException("unexpected end of file"); return in[k++]&0xFF; }
+  private int u4() throws java.io.IOException { return get()|get()<<8|get()<<16|get()<<24; }
+}
+/** Tampon de décompression : b[0..n) ; END marque la fin d'un segment. */
+final class Chunk { static final Chunk END=new Chunk(); final byte[] b=new byte[Gunzip.SIZE]; int n; }
@@ -0,0 +1,55 @@
+/**
+ * DFA paresseux (à la RE2) : les états (ensembles d'états du NDFA) ne sont construits que lorsque l'entrée les atteint,
+ * dans un cache borné en mémoire. Cache plein : on le vide et on repart de l'état courant. Si le cache est vidé trop
+ * souvent pour ce qu'il fait gagner, on passe à la simulation directe du NDFA (un seul ensemble courant, rien en cache).
+ * Les lignes du cache sont indexées par classe d'octets (NDFAutomaton.byteClasses).
+ */
+class LazyDFA extends Engine {
+  static final long CACHE=8<<20; static final int FLUSHES=3,MIN_BYTES_PER_STATE=10;
+  final NDFAutomaton n; final int[] cls; final int k; final long budget; final boolean acc0;
+  private java.util.HashMap<Key,Integer> ids=new java.util.HashMap<>(); private int[][] sets=new int[64][],rows=new int[64][]; private boolean[] acc=new boolean[64]; private int size; private long used;
+  private int[] mark,buf,stack,cur,nxt; private int gen,flushes,curN; private long seen,seenAtFlush; private boolean nfa,curAcc;
+  LazyDFA(NDFAutomaton n) { this(n,n.byteClasses(),CACHE); }
+  private LazyDFA(NDFAutomaton n,int[] cls,long budget) { this.n=n; this.cls=cls; this.k=cls[255]+1; this.budget=budget; mark=new int[n.size]; buf=new int[n.size]; stack=new int[n.size]; int[] s0=closure(null,0,-1); add(s0); acc0=acc[0]; }
+  Engine copy() { return new LazyDFA(n,cls,budget); }
+  boolean accept(int s) { return nfa?(s==0?acc0:curAcc):acc[s]; }
+  boolean dead(int s) { return nfa?s!=0&&curN==0:sets[s].length==0; }
+  int next(int s,int c) {
+    if (nfa) { if (c=='\n'||c=='\r') return 0; int k=s==0?step(sets[0],sets[0].length,c,nxt):step(cur,curN,c,nxt); int[] x=cur; cur=nxt; nxt=x; curN=k; curAcc=n.tag==null?mark[n.size-1]==gen:accepts(cur,curN); return 1; }
+    int t=rows[s][cls[c]]; return t>=0?t:miss(s,c);
+  }
+  int run(java.nio.ByteBuffer b,int i,int m) {
+    int s=st,i0=i; boolean hit=false;
+    if (!nfa) for (;i<m;i++) { int c=b.get(i)&0xFF,t=rows[s][cls[c]]; if (t<0) { seen+=i-i0; i0=i; t=miss(s,c); if (nfa) { s=t; if (!(hit=accept(s))) i++; break; } } s=t; if (acc[s]) { hit=true; break; } }
+    if (nfa&&!hit) for (;i<m;i++) { s=next(s,b.get(i)&0xFF); if (accept(s)) break; }
+    seen+=i-i0; st=s; return i;
+  }
+  private int miss(int s,int c) {
+    int[] t=closure(sets[s],sets[s].length,c); Integer id=ids.get(new Key(t));
+    if (id!=null) { rows[s][cls[c]]=id; return id; }
+    if (used+cost(t)<=budget) { int r=add(t); rows[s][cls[c]]=r; return r; }
+    flushes++; if (flushes>=FLUSHES&&seen-seenAtFlush<(long)MIN_BYTES_PER_STATE*size) { nfa=true; cur=java.util.Arrays.copyOf(t,n.size); nxt=new int[n.size]; curN=t.length; curAcc=accepts(t,t.length); return 1; }
+    int[] s0=sets[0]; ids.clear(); java.util.Arrays.fill(sets,null); java.util.Arrays.fill(rows,null); size=0; used=0; seenAtFlush=seen; add(s0); return java.util.Arrays.equals(t,s0)?0:add(t);
+  }
+  private int add(int[] t) {
+    if (size==rows.length) { sets=java.util.Arrays.copyOf(sets,2*size); rows=java.util.Arrays.copyOf(rows,2*size); acc=java.util.Arrays.copyOf(acc,2*size); }
+    int[] r=new int[k]; java.util.Arrays.fill(r,-1); r[cls['\n']]=0; r[cls['\r']]=0; sets[size]=t; rows[size]=r; acc[size]=accepts(t,t.length); ids.put(new Key(t),size); used+=cost(t); return size++;
+  }
+  private long cost(int[] t) { return 4L*k+4L*t.length+128; }
+  private boolean accepts(int[] t,int m) { for (int j=0;j<m;j++) if (n.tag(t[j])>=0) return true; return false; }
+  int[] ids(int s) {
+    if (n.tag==null) return ONE; int[] t=nfa?(s==0?sets[0]:cur):sets[s]; int m=nfa&&s!=0?curN:t.length,r=0;
+    for (int j=0;j<m;j++) if (n.tag[t[j]]>=0) r++; int[] o=sized(r); r=0;
+    for (int j=0;j<m;j++) if (n.tag[t[j]]>=0) o[r++]=n.tag[t[j]]; java.util.Arrays.sort(o); return o;
+  }
+  /** Epsilon-clôture de l'état 0 (c<0) ou des cibles sur c depuis S[0..sn), triée. */
+  private int[] closure(int[] S,int sn,int c) { int[] t=java.util.Arrays.copyOf(buf,step(S,sn,c,buf)); java.util.Arrays.sort(t); return t; }
+  /** Même calcul, non trié, dans out ; renvoie la taille. Après l'appel, mark[q]==gen ssi q est dans le résultat. */
+  private int step(int[] S,int sn,int c,int[] out) {
+    if (++gen==0) { java.util.Arrays.fill(mark,0); gen=1; } int n=0,sp=0;
+    if (c<0) { mark[0]=gen; out[n++]=0; stack[sp++]=0; } else for (int k=0;k<sn;k++) { int t=this.n.step(S[k],c); if (t>=0&&mark[t]!=gen) { mark[t]=gen; out[n++]=t; stack[sp++]=t; } }
+    while (sp>0) { int q=stack[--sp],r=this.n.eps0[q]; if (r>=0&&mark[r]!=gen) { mark[r]=gen; out[n++]=r; stack[sp++]=r; } r=this.n.eps1[q]; if (r>=0&&mark[r]!=gen) { mark[r]=gen; out[n++]=r; stack[sp++]=r; } }
+    return n;
+  }
+  private static final class Key { final int[] a; final int h; Key(int[] a) { this.a=a; h=java.util.Arrays.hashCode(a); } public int hashCode() { return h; } public boolean equals(Object o) { return o instanceof Key&&java.util.Arrays.equals(a,((Key)o).a); } }
+}
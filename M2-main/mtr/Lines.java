@@ -0,0 +1,40 @@
+/**
+ * Affichage des lignes trouvées d'un lot, selon le Report, dans un Out : l'en-tête puis les octets de la ligne, pris
+ * directement dans la fenêtre projetée (avec -o, la ligne est d'abord recopiée dans buf pour le Matcher). Sans
+ * en-tête ni -o (raw), la sortie est l'entrée même : les lignes trouvées qui se suivent forment une plage [rs,re)
+ * du fichier, écrite d'un bloc quand elle s'interrompt (par transferTo si elle est grande). Avec -n, line est le
+ * nombre de '\n' avant counted : skip les compte au fil des fenêtres, sans revenir en arrière.
+ */
+class Lines {
+  static final int RUN=1<<16;
+  final Report r; final Matcher m; final Out out; final boolean raw; byte[] buf=new byte[1<<12],pre; final byte[] head=new byte[64]; final java.nio.ByteBuffer one=java.nio.ByteBuffer.allocate(1);
+  java.nio.channels.FileChannel ch; long line,counted,rs,re;
+  Lines(Report r,Matcher m,Out out) { this.r=r; this.m=m; this.out=out; raw=!r.only&&!r.lines&&!r.bytes&&!r.names; }
+  void start(java.nio.channels.FileChannel ch,byte[] pre,long from,long line) { this.ch=ch; this.pre=pre; this.line=line; counted=rs=re=from; }
+  /** Fin de la partie : écrit la plage en cours. */
+  void end() throws java.io.IOException { run(null,0); }
+  /** Fin de la fenêtre b : compte ses '\n' (-n) et écrit une petite plage en cours tant que ses octets sont projetés. */
+  void window(java.nio.ByteBuffer b,long pos,long to) throws java.io.IOException { skip(b,pos,to); if (re-rs<RUN) run(b,pos); }
+  /** Compte les '\n' de [counted,to) qui sont dans la fenêtre b (b commence à la position pos du fichier). */
+  void skip(java.nio.ByteBuffer b,long pos,long to) { if (!r.lines||b==null||to<=counted) return; for (int i=(int)Math.max(0,counted-pos),e=(int)(to-pos);i<e;i++) if (b.get(i)=='\n') line++; counted=to; }
+  /** Ligne [ls,le) ; b==null : la dernière du fichier, sans '\n' après elle. */
+  void emit(java.nio.channels.FileChannel ch,java.nio.ByteBuffer b,long pos,long ls,long le) throws java.io.IOException {
+    if (r.count) return; skip(b,pos,ls); long no=line+1; if (r.lines&&le>=counted) { line++; counted=le+1; }
+    boolean cr=le>ls&&at(b,pos,le-1)=='\r'; int len=(int)(le-ls)-(cr?1:0);
+    //RAW: A LINE RIGHT AFTER THE RUN (AND ITS '\n') JUST EXTENDS IT; A '\r' TO DROP OR A MISSING FINAL '\n' BREAKS IT
+    if (raw) { if (ls!=re||cr||b==null) { run(b,pos); rs=re=ls; } if (!cr&&b!=null) { re=le+1; return; } copy(b,pos,ls,len); out.write('\n'); rs=re=le+1; return; }
+    if (r.only) {
+      if (buf.length<len) buf=new byte[Math.max(len,2*buf.length)];
+      if (b!=null&&ls>=pos) b.get((int)(ls-pos),buf,0,len); else { java.nio.ByteBuffer w=java.nio.ByteBuffer.wrap(buf,0,len); while (w.hasRemaining()) if (ch.read(w,ls+w.position())<0) break; }
+      m.reset(buf,0,len); while (m.find()) if (m.end()>m.start()) { int k=header(no,ls+m.start()); if (pre!=null) out.write(pre); out.write(head,0,k); out.write(buf,m.start(),m.end()-m.start()); out.write('\n'); } return;
+    }
+    int k=header(no,ls); if (pre!=null) out.write(pre); out.write(head,0,k); copy(b,pos,ls,len); out.write('\n');
+  }
+  //WRITES THE RUN [rs,re): FROM THE WINDOW IF IT IS ALL IN IT, ELSE FROM THE FILE
+  private void run(java.nio.ByteBuffer b,long pos) throws java.io.IOException { if (re>rs) copy(b,pos,rs,re-rs); rs=re; }
+  private void copy(java.nio.ByteBuffer b,long pos,long from,long len) throws java.io.IOException { if (b!=null&&from>=pos&&len<RUN) out.write(b,(int)(from-pos),(int)len); else out.transfer(ch,from,len); }
+  private int at(java.nio.ByteBuffer b,long pos,long x) throws java.io.IOException { if (b!=null&&x>=pos) return b.get((int)(x-pos)); one.clear(); ch.read(one,x); return one.get(0); }
+  //"n:" AND "offset:" IN head AS ASKED; RETURNS THEIR LENGTH
+  private int header(long no,long at) { int k=0; if (r.lines) k=num(head,k,no); if (r.bytes) k=num(head,k,at); return k; }
+  static int num(byte[] o,int k,long v) { int e=k; do { o[e++]=(byte)('0'+v%10); v/=10; } while (v>0); for (int i=k,j=e-1;i<j;i++,j--) { byte x=o[i]; o[i]=o[j]; o[j]=x; } o[e++]=':'; return e; }
+}
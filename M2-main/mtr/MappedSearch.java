@@ -0,0 +1,107 @@
+/**
+ * Recherche dans des fichiers projetés en mémoire (FileChannel.map) : le DFA lit directement les octets,
+ * sans décodage UTF-16 ni String par ligne. Les bornes de ligne ne sont cherchées qu'autour d'un match.
+ * Un octet vaut un caractère (comme en ISO-8859-1) ; '\n' termine une ligne, un '\r' final est retiré, un '\r' seul reste dans la ligne (comme grep).
+ * Les fichiers (et dossiers parcourus avec -r) sont répartis en lots : un gros fichier est découpé en morceaux
+ * alignés sur les '\n', les petits fichiers sont regroupés. Les lots tournent sur un ForkJoinPool (vol de tâches)
+ * avec le même automate (une copie de l'Engine par lot), chacun dans son propre tampon (un Out en mémoire), et les tampons sont écrits dans l'ordre des fichiers.
+ * Un lot dont la sortie dépasse Out.LIMIT (un fichier gzip, un gros fichier avec -n) attend d'être le plus ancien, puis écrit directement.
+ * Avec un Prefilter, scan saute d'une occurrence du littéral obligatoire à la suivante et ne lance le DFA que sur ces lignes.
+ * Avec une requête de trigrammes (--index), un fichier indexé n'est lu que dans les blocs que TrigramIndex garde.
+ * Un fichier gzip est un lot à lui seul, décompressé par Gunzip (sur threads threads) et parcouru par StreamSearch.
+ * Avec des points de reprise (--resume, --follow), un fichier n'est lu que de sa reprise à sa dernière fin de ligne (Follow).
+ * Ce qui est affiché pour une ligne trouvée dépend du Report (Lines) ; -c et -l n'écrivent rien pendant la recherche,
+ * -l arrête un fichier à la première ligne trouvée, et Tally écrit une ligne par fichier.
+ */
+class MappedSearch {
+  static final int WINDOW=1<<30,CHUNK=1<<23,BATCH=256;
+  /** ix : requête de trigrammes des motifs, seulement avec --index (sinon null) ; fw : points de reprise, seulement avec --resume ou --follow (sinon null) ;
+   *  p : motif compilé avec son DFA ancré, seulement pour -o (sinon null). */
+  static boolean search(Engine d,Prefilter pf,Query ix,Follow fw,Pattern p,java.util.List<String> paths,boolean recursive,Report r,Out out,int threads) throws java.io.IOException {
+    java.util.List<Batch> L=new java.util.ArrayList<>(); boolean ok=true; Batch cur=null; Tally t=new Tally(r,out);
+    for (String s:paths) {
+      java.nio.file.Path q=java.nio.file.Paths.get(s); java.util.List<java.nio.file.Path> F=new java.util.ArrayList<>();
+      if (java.nio.file.Files.isDirectory(q)) { if (!recursive) { System.err.println("ERROR: "+s+": Is a directory"); ok=false; continue; } try (java.util.stream.Stream<java.nio.file.Path> w=java.nio.file.Files.walk(q)) { w.filter(java.nio.file.Files::isRegularFile).sorted().forEach(F::add); } } else F.add(q);
+      for (java.nio.file.Path f:F) {
+        long n; try { n=java.nio.file.Files.size(f); } catch (java.io.IOException e) { System.err.println("ERROR: "+f+": "+why(e)); ok=false; continue; }
+        byte[] pre=r.names?(f+":").getBytes():null;
+        if (Gunzip.is(f,n)) { L.add(new Batch(d,pf,p,r).gzip(f,pre,n,threads)); cur=null; continue; }
+        //RESUMED: ONLY [FROM THE CHECKPOINT, TO THE LAST '\n'), WHOSE FIRST LINE NUMBER THE CHECKPOINT KNOWS
+        long[] c=fw==null?null:fw.parts(f,n); long from=c==null?0:c[0],to=c==null?n:c[1],line=c==null?0:c[2];
+        //INDEXED: ONLY THE CANDIDATE BLOCKS, WHOSE LINE NUMBERS THE INDEX KNOWS, SO EVEN WITH -n THEY ARE SEPARATE PARTS
+        if (c==null&&ix!=null&&(c=TrigramIndex.parts(f,n,ix,CHUNK))!=null) { for (int i=0;i<c.length;i+=3) { if (cur==null||cur.bytes>=CHUNK||cur.parts.size()>=BATCH) L.add(cur=new Batch(d,pf,p,r)); cur.add(f,pre,c[i],c[i+1],c[i+2]); } continue; }
+        //WITH -n A FILE STAYS IN ONE PART: A LINE NUMBER NEEDS ALL THE '\n' BEFORE IT
+        if (to-from>CHUNK&&!r.lines) { for (long x=from;x<to;x+=CHUNK) L.add(new Batch(d,pf,p,r).add(f,pre,x,Math.min(to,x+CHUNK),0)); cur=null; continue; }
+        if (cur==null||cur.bytes>=CHUNK||cur.parts.size()>=BATCH) L.add(cur=new Batch(d,pf,p,r)); cur.add(f,pre,from,to,line);
+      }
+    }
+    if (threads<=1||L.size()<=1) { for (Batch b:L) { b.o=out; ok&=b.call().report(); t.add(b); b.done(fw); } t.flush(); return ok; }
+    java.util.concurrent.ForkJoinPool pool=new java.util.concurrent.ForkJoinPool(threads); java.util.ArrayDeque<Batch> q=new java.util.ArrayDeque<>();
+    try {
+      for (Batch b:L) { b.o=new Out(null); b.task=pool.submit(b); q.add(b); if (q.size()>=2*threads) ok&=write(q.poll(),out,t,fw); }
+      while (!q.isEmpty()) ok&=write(q.poll(),out,t,fw); t.flush();
+    } catch (InterruptedException e) { Thread.currentThread().interrupt(); throw new java.io.InterruptedIOException(); }
+    catch (java.util.concurrent.ExecutionException e) { throw new java.io.IOException(e.getCause()); }
+    finally { pool.shutdownNow(); }
+    return ok;
+  }
+  //THE OLDEST BATCH: ITS TURN HAS COME (PAST Out.LIMIT ITS OUT NOW WRITES STRAIGHT TO out), THEN WHAT IT STILL HOLDS AND ITS COUNTS GO OUT
+  private static boolean write(Batch x,Out out,Tally t,Follow fw) throws java.io.IOException,InterruptedException,java.util.concurrent.ExecutionException { x.o.own(out); x.task.get(); boolean ok=x.writeTo(out); t.add(x); x.done(fw); return ok; }
+  /** Lignes trouvées dans [from,to), passées à w ; renvoie leur nombre (-l : 0 ou 1). */
+  static long scan(Engine d,Prefilter f,java.nio.channels.FileChannel ch,long from,long to,Lines w) throws java.io.IOException {
+    long pos=from,ls=from,c=0; boolean in=false,mid=false; d.st=0;
+    while (pos<to) {
+      int m=(int)Math.min(WINDOW,to-pos),i=0; java.nio.MappedByteBuffer b=ch.map(java.nio.channels.FileChannel.MapMode.READ_ONLY,pos,m);
+      while (i<m) {
+        if (!in) { if (d.accept(0)) in=true; else {
+          //WITH A PREFILTER THE DFA ONLY RUNS FROM THE START OF A CANDIDATE LINE (mid) TO ITS END, THEN SKIPS AGAIN
+          int e=m; if (f!=null) { if (!mid) { i=f.skip(b,i,m,pos+m==to); mid=true; } e=i; while (e<m&&b.get(e)!='\n') e++; }
+          i=d.run(b,i,e); if (i==e) { if (e==m) break; i=e+1; d.st=0; mid=false; continue; }
+          in=true; int j=i; while (j>=0&&b.get(j)!='\n') j--; if (j>=0) ls=pos+j+1; } }
+        int e=i; while (e<m&&b.get(e)!='\n') e++; if (e==m) { i=m; break; }
+        c++; if (w.r.list) return c; w.emit(ch,b,pos,ls,pos+e); ls=pos+e+1; i=e+1; d.st=0; in=false; mid=false;
+      }
+      if (!in) { int j=m-1; while (j>=0&&b.get(j)!='\n') j--; if (j>=0) ls=pos+j+1; }
+      w.window(b,pos,pos+m); pos+=m;
+    }
+    if (in) { c++; if (!w.r.list) w.emit(ch,null,pos,ls,to); } return c;
+  }
+  static long align(java.nio.channels.FileChannel ch,long p,long n) throws java.io.IOException {
+    if (p<=0||p>=n) return Math.max(0,Math.min(p,n)); java.nio.ByteBuffer b=java.nio.ByteBuffer.allocate(1<<12);
+    for (long q=p-1;q<n;) { b.clear(); int r=ch.read(b,q); if (r<=0) break; for (int i=0;i<r;i++) if (b.get(i)=='\n') return q+i+1; q+=r; } return n;
+  }
+  static String why(java.io.IOException e) { return e instanceof java.nio.file.NoSuchFileException?"No such file or directory":e instanceof java.nio.file.AccessDeniedException?"Permission denied":e.getMessage(); }
+}
+class Batch implements java.util.concurrent.Callable<Batch> {
+  final Engine d; final Prefilter f; final Pattern p; final Report r; final java.util.List<FilePart> parts=new java.util.ArrayList<>(); final StringBuilder err=new StringBuilder(); long bytes; Out o; java.util.concurrent.Future<Batch> task;
+  Batch(Engine d,Prefilter f,Pattern p,Report r) { this.d=d; this.f=f; this.p=p; this.r=r; }
+  /** Partie [from,to) de f ; line : nombre de lignes avant from (pour -n). */
+  Batch add(java.nio.file.Path f,byte[] pre,long from,long to,long line) { parts.add(new FilePart(f,pre,from,to,line)); bytes+=to-from; return this; }
+  /** Fichier gzip f de n octets, décompressé par threads threads. */
+  Batch gzip(java.nio.file.Path f,byte[] pre,long n,int threads) { add(f,pre,0,n,0); parts.get(parts.size()-1).gz=threads; return this; }
+  public Batch call() {
+    Engine g=d.copy(); Lines w=new Lines(r,p==null?null:p.matcher(),o);
+    for (FilePart x:parts) try {
+      if (x.gz>0) try (Gunzip z=new Gunzip(x.path,x.to,x.gz)) { Stage sc=Stats.scan(); StreamSearch s=new StreamSearch(g,f,w.m,r,o,EgrepV1.buffer); s.pre=x.prefix; x.count=s.search(z); Stats.scanned(sc,x.path.toString(),s.base+s.n,x.count); }
+      else try (java.nio.channels.FileChannel ch=java.nio.channels.FileChannel.open(x.path)) { Stage sc=Stats.scan(); long n=ch.size(),from=MappedSearch.align(ch,x.from,n),to=MappedSearch.align(ch,x.to,n); w.start(ch,x.prefix,from,x.line); x.count=MappedSearch.scan(g,f,ch,from,to,w); w.end(); Stats.scanned(sc,x.path.toString(),to-from,x.count); }
+    }
+    //A FAILED WRITE (THE READER WENT AWAY) ENDS THE WHOLE SEARCH, NOT JUST THIS FILE
+    catch (java.io.IOException e) { if (o.broken) throw new java.io.UncheckedIOException(e); x.count=-1; err.append("ERROR: ").append(x.path).append(": ").append(MappedSearch.why(e)).append('\n'); }
+    return this;
+  }
+  boolean report() { System.err.print(err); return err.length()==0; }
+  /** Parties lues, pour les reprises (fw null : pas de reprise). */
+  void done(Follow fw) { if (fw!=null) for (FilePart x:parts) fw.searched(x.path,x.count>=0); }
+  boolean writeTo(Out out) throws java.io.IOException { o.writeTo(out); return report(); }
+}
+class FilePart { java.nio.file.Path path; byte[] prefix; long from,to,line,count; int gz; FilePart(java.nio.file.Path p,byte[] pre,long f,long t,long l) { path=p; prefix=pre; from=f; to=t; line=l; } }
+/** -c et -l : une ligne par fichier, écrite quand sa dernière partie est arrivée (les parties arrivent dans l'ordre des fichiers, chaque fichier avec son Path). */
+class Tally {
+  final Report r; final java.io.OutputStream out; java.nio.file.Path path; long n; boolean failed;
+  Tally(Report r,java.io.OutputStream out) { this.r=r; this.out=out; }
+  void add(Batch b) throws java.io.IOException { if (!r.count&&!r.list) return; for (FilePart p:b.parts) { if (p.path!=path) flush(); path=p.path; if (p.count<0) failed=true; else n+=p.count; } }
+  void flush() throws java.io.IOException {
+    if (path!=null&&!failed) { if (r.list) { if (n>0) out.write((path+"\n").getBytes()); } else out.write(((r.names?path+":":"")+n+"\n").getBytes()); }
+    path=null; n=0; failed=false;
+  }
+}
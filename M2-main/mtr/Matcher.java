@@ -0,0 +1,69 @@
+/**
+ * Recherche d'un Pattern dans un CharSequence, un byte[] ou un ByteBuffer, sans allocation par appel : reset
+ * donne l'entrée, puis find() avance de match en match (start(), end()), matches() teste l'entrée entière et
+ * findAll() passe tous les matchs à un Found. Les matchs sont les plus à gauche puis les plus longs (comme grep -o),
+ * ne contiennent ni '\n' ni '\r', et les indices sont ceux de l'entrée (absolus pour byte[] et ByteBuffer). Les
+ * octets sont lus tels quels ; dans un CharSequence, un caractère hors de l'alphabet du motif est lu par ses octets
+ * UTF-8 (Engine.next). Un Matcher garde son état : un par thread.
+ */
+public final class Matcher {
+  public interface Found { void found(int start,int end); }
+  private final Engine search,anchored; private final Prefilter pf; private final boolean utf8;
+  private CharSequence cs; private byte[] ba; private java.nio.ByteBuffer bb; private int lo,hi,from,start=-1,end=-1; private boolean none;
+  Matcher(Pattern p) { search=p.search.engine.copy(); anchored=p.anchored.copy(); pf=p.search.prefilter; utf8=p.search.utf8; }
+  public Matcher reset(CharSequence s) { cs=s; ba=null; bb=null; return bounds(0,s.length()); }
+  public Matcher reset(byte[] b) { return reset(b,0,b.length); }
+  public Matcher reset(byte[] b,int off,int len) { cs=null; ba=b; bb=null; return bounds(off,off+len); }
+  /** Octets b[position..limit) ; la position du buffer n'est pas modifiée. */
+  public Matcher reset(java.nio.ByteBuffer b) { cs=null; ba=null; bb=b; return bounds(b.position(),b.limit()); }
+  private Matcher bounds(int lo,int hi) { this.lo=lo; this.hi=hi; start=end=-1; none=pf!=null&&absent(); from=none?hi+1:lo; return this; }
+  //THE REQUIRED LITERAL IS LOOKED FOR ONCE PER INPUT, WHEN IT IS CHEAP TO DO SO WITHOUT COPYING: NO MATCH AT ALL WITHOUT IT
+  private boolean absent() { if (cs instanceof String) return fits(pf.s)&&((String)cs).indexOf(pf.s)<0; if (bb!=null) return pf.find(bb,lo,hi)<0; return false; }
+  public boolean matches(CharSequence s) { return reset(s).matches(); }
+  public boolean matches(byte[] b) { return reset(b).matches(); }
+  public boolean matches(java.nio.ByteBuffer b) { return reset(b).matches(); }
+  public boolean find(CharSequence s) { return reset(s).find(); }
+  public boolean find(byte[] b) { return reset(b).find(); }
+  public boolean find(java.nio.ByteBuffer b) { return reset(b).find(); }
+  public int findAll(CharSequence s,Found f) { return reset(s).findAll(f); }
+  public int findAll(byte[] b,Found f) { return reset(b).findAll(f); }
+  public int findAll(java.nio.ByteBuffer b,Found f) { return reset(b).findAll(f); }
+  /** Vrai si toute l'entrée est reconnue par le motif. */
+  public boolean matches() {
+    Engine a=anchored; int q=0; start=end=-1;
+    for (int i=lo;i<hi;i++) { int c=at(i); if (c=='\n'||c=='\r') return false; q=next(a,q,i,c); if (a.dead(q)) return false; }
+    if (!a.accept(q)) return false; start=lo; end=hi; return true;
+  }
+  /**
+   * Match suivant (après un match vide, on avance d'un caractère) ; ses bornes sont dans start() et end().
+   * Coût : O(e-from) pour trouver la première fin e, puis une passe ancrée depuis chaque début possible de from à e,
+   * chacune jusqu'à ce que le DFA ancré meure ; quadratique au pire dans la longueur de l'entrée (a*b|c sur « aa…ac »),
+   * linéaire quand les passes ancrées meurent vite (mots, classes, motifs sans étoile en tête).
+   */
+  public boolean find() {
+    //THE SEARCH AUTOMATON GIVES THE EARLIEST END e OF A MATCH, SO THE LEFTMOST MATCH STARTS AT OR BEFORE e: THE FIRST s WHOSE ANCHORED RUN ACCEPTS
+    //A CharSequence IN THE BYTE ALPHABET READS A CHARACTER BEYOND 255 AS SEVERAL BYTES: THE SEARCH MAY ACCEPT INSIDE IT, WHERE NO MATCH CAN END; THEN NONE STARTS UP TO e, AND IT GOES ON AFTER e
+    for (Engine d=search;from<=hi;) {
+      int q=0,e=-1;
+      if (d.accept(0)) e=from; else for (int i=from;i<hi;i++) { q=next(d,q,i,at(i)); if (d.accept(q)) { e=i+1; break; } }
+      if (e<0) break;
+      for (int s=from;s<=e;s++) { int x=longest(s); if (x>=0) { start=s; end=x; from=x>s?x:x+1; return true; } }
+      from=e+1;
+    }
+    from=hi+1; start=end=-1; return false;
+  }
+  /** Passe chaque match de l'entrée, du début, à f ; renvoie leur nombre. */
+  public int findAll(Found f) { int n=0; from=none?hi+1:lo; while (find()) { f.found(start,end); n++; } return n; }
+  public int start() { if (start<0) throw new IllegalStateException("No match available"); return start; }
+  public int end() { if (start<0) throw new IllegalStateException("No match available"); return end; }
+  //END OF THE LONGEST MATCH STARTING AT s, OR -1
+  private int longest(int s) {
+    Engine a=anchored; int q=0,last=a.accept(0)?s:-1;
+    for (int i=s;i<hi;i++) { int c=at(i); if (c=='\n'||c=='\r') break; q=next(a,q,i,c); if (a.dead(q)) break; if (a.accept(q)) last=i+1; }
+    return last;
+  }
+  private int at(int i) { return cs!=null?cs.charAt(i):ba!=null?ba[i]&0xFF:bb.get(i)&0xFF; }
+  private int next(Engine e,int q,int i,int c) { return cs!=null&&c>=0x80?e.next(q,cs,i,utf8):e.next(q,c); }
+  //THE LITERAL IS BYTES: String.indexOf FINDS THEM AS CHARACTERS ONLY IF THEY ARE ASCII (A BYTE OVER 127 MAY COME FROM A LONGER UTF-8 CHARACTER)
+  private boolean fits(String lit) { for (int i=0;i<lit.length();i++) if (lit.charAt(i)>=0x80) return false; return true; }
+}
@@ -0,0 +1,54 @@
+/**
+ * Plusieurs motifs compilés en un seul automate (step2 sur la liste des arbres, puis step3 et step4) : un état
+ * acceptant porte les numéros des motifs qu'il reconnaît, donc une seule passe sur le texte dit quels motifs
+ * touchent chaque ligne, quel que soit leur nombre. Si tous les motifs sont des ensembles finis de mots,
+ * le DFA est construit directement par Aho-Corasick. S'ils ont au plus 64 positions et que leur DFA dépasse
+ * DFA_SMALL états, la construction s'arrête là : Glushkov les simule sans DFA. Comme un Engine, une instance sert à un seul thread (copy()).
+ */
+class MultiPattern {
+  interface Hit { void hit(int from,int to,int[] ids); }
+  final Engine engine; final Prefilter prefilter; final int count; final boolean utf8; private final int[] mark,found; private final int[][] sized; private int gen;
+  MultiPattern(Engine e,Prefilter f,int count,boolean utf8) { engine=e; prefilter=f; this.count=count; this.utf8=utf8; mark=new int[count]; found=new int[count]; sized=new int[count+1][]; }
+  static MultiPattern compile(java.util.List<String> patterns) throws Exception { return compile(patterns,EgrepV1.DFA_MAX); }
+  /** max : nombre d'états au-delà duquel step3 abandonne pour un LazyDFA ; max<0 : LazyDFA sans essayer step3 (PatternCache sait déjà qu'il abandonnerait). */
+  static MultiPattern compile(java.util.List<String> patterns,int max) throws Exception {
+    long len=0; for (String p:patterns) len+=p.length(); return deep(len,()->build(patterns,max));
+  }
+  //THE TREE PASSES (words, facts, step2) RECURSE AS DEEP AS THE TREE, AND A LIST OF n ALTERNATIVES IS n LEVELS DEEP: THEY RUN ON A THREAD WHOSE STACK GROWS WITH THE PATTERN LENGTH len
+  static <T> T deep(long len,java.util.concurrent.Callable<T> c) throws Exception {
+    Object[] r=new Object[1]; Thread t=new Thread(null,()->{ try { r[0]=c.call(); } catch (Exception|StackOverflowError e) { r[0]=e; } },"compile",Math.max(1<<20,512*len)); t.start(); t.join();
+    if (r[0] instanceof Exception) throw (Exception)r[0]; if (r[0] instanceof Error) throw (Error)r[0]; @SuppressWarnings("unchecked") T v=(T)r[0]; return v;
+  }
+  private static MultiPattern build(java.util.List<String> patterns,int max) throws Exception {
+    java.util.List<RegExTree> ts=new java.util.ArrayList<>(); for (String p:patterns) ts.add(EgrepV1.parse(p));
+    java.util.List<java.util.List<String>> W=max<0?null:new java.util.ArrayList<>(); int total=0; for (int i=0;W!=null&&i<ts.size();i++) { java.util.List<String> w=AhoCorasick.words(ts.get(i),AhoCorasick.MAX_WORDS-total); if (w==null) W=null; else { W.add(w); total+=w.size(); } }
+    Engine e; if (W!=null) e=new DFAEngine(EgrepV1.step4(AhoCorasick.build(W,ts.size()>1)));
+    else {
+      //A SMALL DFA SCANS FASTER THAN GLUSHKOV AND COSTS LITTLE TO BUILD; A BIGGER ONE IS NOT BUILT WHEN GLUSHKOV FITS
+      boolean g=Glushkov.positions(ts)<=Glushkov.MAX; NDFAutomaton n=ts.size()==1?EgrepV1.step2(EgrepV1.unanchored(ts.get(0))):EgrepV1.step2(ts); DFAutomaton d=max<0?null:EgrepV1.step3(n,g?Math.min(max,EgrepV1.DFA_SMALL):max);
+      e=d!=null?new DFAEngine(EgrepV1.step4(d)):g?Glushkov.of(ts,false):new LazyDFA(n); }
+    return new MultiPattern(e,ts.size()==1?Prefilter.of(ts.get(0)):null,ts.size(),EgrepV1.utf8);
+  }
+  MultiPattern copy() { return new MultiPattern(engine.copy(),prefilter,count,utf8); }
+  /** Numéros croissants des motifs qui ont un match dans line ; on s'arrête dès que tous sont trouvés. Le tableau est réutilisé : valable jusqu'à l'appel suivant. */
+  int[] matches(CharSequence line) {
+    int q=0,m=0; next(); if (engine.accept(0)) m=hit(0,m);
+    for (int i=0;i<line.length()&&m<count;i++) { q=engine.next(q,line,i,utf8); if (engine.accept(q)) m=hit(q,m); }
+    return result(m);
+  }
+  /** Une passe sur b[0..limit) : pour chaque ligne qu'au moins un motif touche, h reçoit ses bornes (sans '\n' ni '\r' final) et les motifs (tableau réutilisé d'une ligne à l'autre). */
+  void scan(java.nio.ByteBuffer b,Hit h) {
+    Engine e=engine; int n=b.limit(),i=0;
+    while (i<n) {
+      int i0=i,m=0; e.st=0; next();
+      if (e.accept(0)) m=hit(0,m); else { i=e.run(b,i,n); if (i==n) break; m=hit(e.st,m); i++; }
+      int ls=i-1; while (ls>=i0&&b.get(ls)!='\n') ls--; ls++; int le=Math.max(ls,i); while (le<n&&b.get(le)!='\n') le++;
+      while (i<le&&m<count) { i=e.run(b,i,le); if (i<le) { m=hit(e.st,m); i++; } }
+      h.hit(ls,le>ls&&b.get(le-1)=='\r'?le-1:le,result(m)); i=le+1;
+    }
+  }
+  private void next() { if (++gen==0) { java.util.Arrays.fill(mark,0); gen=1; } }
+  private int hit(int s,int m) { for (int id:engine.ids(s)) if (mark[id]!=gen) { mark[id]=gen; found[m++]=id; } return m; }
+  //ONE ARRAY PER NUMBER OF PATTERNS FOUND, REUSED: NOTHING IS ALLOCATED PER LINE ONCE EACH LENGTH WAS SEEN
+  private int[] result(int m) { int[] r=sized[m]; if (r==null) sized[m]=r=new int[m]; System.arraycopy(found,0,r,0,m); java.util.Arrays.sort(r); return r; }
+}
@@ -0,0 +1,15 @@
+/** Automate non déterministe de Thompson (step2), un tableau par champ. */
+class NDFAutomaton {
+  //INIT STATE IS 0, FINAL STATE IS size-1; AT MOST ONE LABELLED EDGE q --[lo[q]..hi[q]]--> next[q] AND TWO EPSILON EDGES eps0[q], eps1[q] (-1 = NONE) PER STATE
+  int size; int[] lo=new int[16],hi=new int[16],next=new int[16],eps0=new int[16],eps1=new int[16];
+  //SEVERAL PATTERNS (step2 ON A LIST): tag[q] IS THE PATTERN NUMBER OF THE FINAL STATE q, -1 ELSEWHERE; null: ONE PATTERN, FINAL STATE size-1
+  int[] tag;
+  int tag(int q) { return tag==null?(q==size-1?0:-1):tag[q]; }
+  NDFAutomaton() { java.util.Arrays.fill(hi,-1); java.util.Arrays.fill(eps0,-1); java.util.Arrays.fill(eps1,-1); }
+  void ensure(int n) { if (n<=lo.length) return; int m=Math.max(n,2*lo.length),k=lo.length; lo=java.util.Arrays.copyOf(lo,m); hi=java.util.Arrays.copyOf(hi,m); next=java.util.Arrays.copyOf(next,m); eps0=java.util.Arrays.copyOf(eps0,m); eps1=java.util.Arrays.copyOf(eps1,m); java.util.Arrays.fill(hi,k,m,-1); java.util.Arrays.fill(eps0,k,m,-1); java.util.Arrays.fill(eps1,k,m,-1); }
+  void edge(int q,int l,int h,int t) { ensure(q+1); lo[q]=l; hi[q]=h; next[q]=t; }
+  void eps(int q,int t) { ensure(q+1); if (eps0[q]<0) eps0[q]=t; else eps1[q]=t; }
+  int step(int q,int c) { return lo[q]<=c&&c<=hi[q]?next[q]:-1; }
+  //BYTE CLASSES: c AND c' SHARE A CLASS IFF NO EDGE TELLS THEM APART; '\n' AND '\r' ALWAYS GET THEIR OWN CLASS (THE ENGINES RESET ON THEM)
+  int[] byteClasses() { boolean[] cut=new boolean[257]; cut['\n']=cut['\n'+1]=cut['\r']=cut['\r'+1]=true; for (int q=0;q<size;q++) if (lo[q]<=hi[q]) { cut[lo[q]]=true; cut[hi[q]+1]=true; } int[] cls=new int[256]; for (int c=1;c<256;c++) cls[c]=cls[c-1]+(cut[c]?1:0); return cls; }
+}
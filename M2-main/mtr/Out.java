@@ -0,0 +1,43 @@
+/**
+ * Sortie binaire tamponnée pour un seul thread, sans verrou ni encodage : les octets des lignes trouvées sont
+ * recopiés directement depuis la fenêtre projetée dans un tampon de SIZE octets, vidé par gros blocs sur le canal.
+ * Sans canal (ch==null), le tampon grandit : c'est la sortie d'un lot, recopiée ensuite dans l'ordre (writeTo).
+ * Il ne dépasse pas LIMIT octets : au-delà, le lot attend son tour (own) et écrit ensuite directement sur le canal.
+ * transfer envoie une plage d'un fichier sans la faire passer par le programme (FileChannel.transferTo, sendfile).
+ * Une erreur d'écriture (lecteur fermé, « Broken pipe ») met broken à vrai avant d'être levée.
+ */
+final class Out extends java.io.OutputStream {
+  static final int SIZE=1<<16,LIMIT=1<<22;
+  //sink: THE OUTPUT THIS BATCH BUFFER GOES TO, ONCE ITS TURN HAS COME (own)
+  private java.nio.channels.WritableByteChannel ch; volatile boolean broken; private byte[] buf=new byte[SIZE]; private int n; private Out sink;
+  Out(java.nio.channels.WritableByteChannel ch) { this.ch=ch; }
+  static Out stdout() { return new Out(new java.io.FileOutputStream(java.io.FileDescriptor.out).getChannel()); }
+  public void write(int b) throws java.io.IOException { if (n==buf.length) room(1); buf[n++]=(byte)b; }
+  public void write(byte[] b,int off,int len) throws java.io.IOException { if (direct(len)) { flush(); drain(java.nio.ByteBuffer.wrap(b,off,len)); return; } room(len); System.arraycopy(b,off,buf,n,len); n+=len; }
+  /** Octets b[at..at+len), sans toucher à la position de b. */
+  void write(java.nio.ByteBuffer b,int at,int len) throws java.io.IOException { if (direct(len)) { flush(); drain(b.slice(at,len)); return; } room(len); b.get(at,buf,n,len); n+=len; }
+  /** Octets [pos,pos+len) du fichier src : par transferTo vers le canal quand la plage est grande, sinon lus dans le tampon. */
+  void transfer(java.nio.channels.FileChannel src,long pos,long len) throws java.io.IOException {
+    if (ch==null&&n+len>LIMIT) pass();
+    if (ch!=null&&len>=SIZE) { flush(); try { for (long t;len>0;pos+=t,len-=t) if ((t=src.transferTo(pos,len,ch))<=0) break; } catch (java.io.IOException e) { broke(); throw e; } }
+    //WHAT transferTo DID NOT SEND (A TARGET IT CANNOT WRITE TO DIRECTLY) IS READ THROUGH THE BUFFER, ONE BUFFER AT A TIME
+    while (len>0) { int k=(int)Math.min(len,ch!=null?buf.length:len); room(k); java.nio.ByteBuffer w=java.nio.ByteBuffer.wrap(buf,n,k); while (w.hasRemaining()) if (src.read(w,pos+w.position()-n)<0) throw new java.io.EOFException(); n+=k; pos+=k; len-=k; }
+  }
+  /** Sortie en mémoire d'un lot : son tour est venu, tout ce qui le précède est déjà dans o. */
+  synchronized void own(Out o) { sink=o; notifyAll(); }
+  /** Recopie le contenu d'une sortie en mémoire dans o. */
+  void writeTo(Out o) throws java.io.IOException { o.write(buf,0,n); }
+  public void flush() throws java.io.IOException { if (ch!=null&&n>0) { drain(java.nio.ByteBuffer.wrap(buf,0,n)); n=0; } }
+  private void drain(java.nio.ByteBuffer w) throws java.io.IOException { if (broken) throw new java.io.IOException("output closed"); try { while (w.hasRemaining()) ch.write(w); } catch (java.io.IOException e) { broke(); throw e; } }
+  //A BATCH WRITING TO sink'S CHANNEL BREAKS sink TOO: main SEES THE CLOSED READER ON THE OUTPUT IT KNOWS
+  private void broke() { broken=true; if (sink!=null) sink.broken=true; }
+  //TRUE IF len BYTES GO STRAIGHT TO THE CHANNEL, PAST THE BUFFER
+  private boolean direct(int len) throws java.io.IOException { if (ch==null&&n+len>LIMIT) pass(); return ch!=null&&len>=buf.length; }
+  //A BATCH BUFFER NEVER GROWS PAST LIMIT: pass COMES FIRST, SO IT GROWS ONLY WITHOUT A CHANNEL AND UP TO LIMIT
+  private void room(int len) throws java.io.IOException { if (n+len<=buf.length) return; if (ch==null&&n+len>LIMIT) pass(); if (ch!=null) { flush(); if (len<=buf.length) return; } buf=java.util.Arrays.copyOf(buf,Math.max(n+len,Math.min(2*buf.length,LIMIT))); }
+  //WAITS FOR THE TURN OF THIS BATCH, THEN WRITES ITS BUFFER AFTER WHAT sink HOLDS, THEN KEEPS WRITING TO sink'S CHANNEL: THE ORDER OF THE OUTPUT STAYS THAT OF THE BATCHES
+  private void pass() throws java.io.IOException {
+    Out o; synchronized (this) { try { while (sink==null) wait(); } catch (InterruptedException e) { Thread.currentThread().interrupt(); throw new java.io.InterruptedIOException(); } o=sink; }
+    try { o.flush(); } catch (java.io.IOException e) { broke(); throw e; } ch=o.ch; flush(); if (buf.length>SIZE) buf=new byte[SIZE];
+  }
+}
@@ -0,0 +1,24 @@
+/**
+ * Motif compilé réutilisable hors de la ligne de commande, à la manière de java.util.regex.Pattern : immuable,
+ * partageable entre threads, compilé une fois (par PatternCache). Il garde deux automates qui ne servent que de
+ * modèles : celui de la recherche (.* puis le motif, comme EgrepV1) et le DFA ancré qui donne les bornes des matchs.
+ * Chaque thread prend son Matcher (matcher()), qui en copie les moteurs.
+ */
+public final class Pattern {
+  private final String regex; final MultiPattern search; final Engine anchored;
+  private Pattern(String regex,MultiPattern search,Engine anchored) { this.regex=regex; this.search=search; this.anchored=anchored; }
+  /** Compile regex (même syntaxe qu'EgrepV1) ; lève une Exception avec la position en cas d'erreur de syntaxe. */
+  public static Pattern compile(String regex) throws Exception { return compile(java.util.List.of(regex)); }
+  /** Plusieurs motifs (comme grep -e) : un match est un match de l'un d'eux. */
+  public static Pattern compile(java.util.List<String> patterns) throws Exception {
+    MultiPattern p=PatternCache.get(patterns); long len=0; for (String x:patterns) len+=x.length();
+    //ANCHORED: NO .* IN FRONT, SO MOST INPUTS DIE AFTER A FEW BYTES; SEVERAL PATTERNS ARE ONE ALTERNATION. GLUSHKOV UP TO 64 POSITIONS, AND STEP3 GIVES UP AS FOR THE SEARCH AUTOMATON
+    Engine a=MultiPattern.deep(len,()->{ RegExTree t=null; for (String x:patterns) { RegExTree u=EgrepV1.parse(x); t=t==null?u:new RegExTree(EgrepV1.A,new java.util.ArrayList<>(java.util.Arrays.asList(t,u))); }
+      Engine g=Glushkov.of(java.util.List.of(t),true); if (g!=null) return g; NDFAutomaton n=EgrepV1.step2(t); DFAutomaton d=EgrepV1.step3(n,EgrepV1.DFA_MAX); return d!=null?new AnchoredDFA(EgrepV1.step4(d)):new LazyDFA(n); });
+    return new Pattern(String.join("\n",patterns),p,a);
+  }
+  public String pattern() { return regex; }
+  public String toString() { return regex; }
+  /** Nouveau Matcher, à n'utiliser que dans un seul thread. */
+  public Matcher matcher() { return new Matcher(this); }
+}
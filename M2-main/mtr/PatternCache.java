@@ -0,0 +1,75 @@
+/**
+ * Cache des motifs compilés, indexé par le texte des motifs, l'alphabet (EgrepV1.utf8) et VERSION. En mémoire : LRU de MEM_ENTRIES motifs.
+ * Sur disque : un fichier par motif avec le DFA minimisé sous forme plate (la table de DFAEngine telle quelle),
+ * relu par projection mémoire sans rien recalculer ; le dossier est borné (DISK_MAX octets, DISK_FILES fichiers)
+ * et les fichiers les moins récemment utilisés sont supprimés. Seuls les motifs longs à compiler (MIN_NANOS)
+ * vont sur disque ; pour un motif qui finit en LazyDFA, le fichier ne dit que cela, et on évite au rechargement
+ * la construction par sous-ensembles qui abandonnerait.
+ */
+class PatternCache {
+  //BUMP VERSION WHENEVER THE COMPILATION OR THE FILE LAYOUT CHANGES: OLD FILES THEN MISS AND ARE EVICTED IN TIME
+  static final int VERSION=3,MAGIC=0x45475243,MEM_ENTRIES=32,DISK_FILES=1000; static final long DISK_MAX=64L<<20,MIN_NANOS=10_000_000L;
+  private static final java.util.LinkedHashMap<java.util.List<Object>,MultiPattern> mem=new java.util.LinkedHashMap<java.util.List<Object>,MultiPattern>(16,0.75f,true) {
+    protected boolean removeEldestEntry(java.util.Map.Entry<java.util.List<Object>,MultiPattern> e) { return size()>MEM_ENTRIES; }
+  };
+  /** Dossier du cache disque (null : pas de cache disque) : propriété egrep.cache, variable EGREP_CACHE, sinon ~/.cache/egrepv1. */
+  static java.nio.file.Path dir=defaultDir();
+  private static java.nio.file.Path defaultDir() {
+    String d=System.getProperty("egrep.cache",System.getenv("EGREP_CACHE")); if (d!=null) return d.isEmpty()?null:java.nio.file.Paths.get(d);
+    return java.nio.file.Paths.get(System.getProperty("user.home"),".cache","egrepv1");
+  }
+  /** Motifs compilés (une copie propre à l'appelant) : mémoire, puis disque, puis MultiPattern.compile. */
+  static MultiPattern get(java.util.List<String> patterns) throws Exception {
+    java.util.List<String> key=java.util.List.copyOf(patterns); java.util.List<Object> mk=java.util.List.of(EgrepV1.utf8,key); MultiPattern p;
+    synchronized (mem) { p=mem.get(mk); } if (p!=null) { Stats.count(Stats.MEMORY); return p.copy(); }
+    java.nio.file.Path f=dir==null?null:dir.resolve(name(key)); p=f==null?null:load(f,key);
+    if (p!=null) Stats.count(Stats.DISK); else { Stats.count(Stats.COMPILED); long t=System.nanoTime(); p=MultiPattern.compile(key); if (f!=null&&System.nanoTime()-t>=MIN_NANOS) store(f,key,p); }
+    synchronized (mem) { mem.put(mk,p); } return p.copy();
+  }
+  //FILE NAME: SHA-256 OF VERSION, THE ALPHABET AND THE PATTERNS (LENGTH-PREFIXED, SO ("ab","c") AND ("a","bc") DIFFER); THE FILE ALSO STORES THE PATTERNS, CHECKED ON LOAD
+  private static String name(java.util.List<String> key) throws Exception {
+    java.security.MessageDigest md=java.security.MessageDigest.getInstance("SHA-256"); java.nio.ByteBuffer b=java.nio.ByteBuffer.allocate(4); md.update(b.putInt(VERSION).array()); md.update(b.clear().putInt(EgrepV1.utf8?1:0).array());
+    for (String s:key) { md.update(b.clear().putInt(s.length()).array()); md.update(s.getBytes(java.nio.charset.StandardCharsets.UTF_16BE)); }
+    StringBuilder r=new StringBuilder(); for (byte x:md.digest()) r.append(Character.forDigit(x>>4&15,16)).append(Character.forDigit(x&15,16)); return r.append(".dfa").toString();
+  }
+  //LAYOUT (BIG-ENDIAN): MAGIC VERSION UTF8 | N, THEN EACH PATTERN AS LENGTH + CHARS | k fa STATES TAGGED (STATES=-1: LAZY, NOTHING FOLLOWS) | cls AS 256 BYTES
+  //| PREFILTER LENGTH (-1: NONE) + BYTES | tt AS STATES*k INTS (PRE-MULTIPLIED, AS IN DFAEngine) | IF TAGGED, FOR EACH STATE: LENGTH (-1: null) + PATTERN NUMBERS
+  private static MultiPattern load(java.nio.file.Path f,java.util.List<String> key) throws Exception {
+    try (java.nio.channels.FileChannel c=java.nio.channels.FileChannel.open(f)) {
+      java.nio.MappedByteBuffer b=c.map(java.nio.channels.FileChannel.MapMode.READ_ONLY,0,c.size());
+      if (b.getInt()!=MAGIC||b.getInt()!=VERSION||b.getInt()!=(EgrepV1.utf8?1:0)||b.getInt()!=key.size()) return null;
+      for (String s:key) { if (b.getInt()!=s.length()) return null; for (int i=0;i<s.length();i++) if (b.getChar()!=s.charAt(i)) return null; }
+      int k=b.getInt(),fa=b.getInt(),n=b.getInt(); boolean tagged=b.getInt()!=0; touch(f); if (n<0) return MultiPattern.compile(key,-1); int[] cls=new int[256]; for (int i=0;i<256;i++) cls[i]=b.get()&0xFF;
+      int pl=b.getInt(); Prefilter pf=null; if (pl>=0) { byte[] lit=new byte[pl]; b.get(lit); pf=new Prefilter(new String(lit,java.nio.charset.StandardCharsets.ISO_8859_1)); }
+      int[] tt=new int[n*k]; b.asIntBuffer().get(tt); b.position(b.position()+4*tt.length);
+      int[][] ids=null; if (tagged) { ids=new int[n][]; for (int s=0;s<n;s++) { int m=b.getInt(); if (m>=0) { ids[s]=new int[m]; b.asIntBuffer().get(ids[s]); b.position(b.position()+4*m); } } }
+      return new MultiPattern(new DFAEngine(tt,cls,fa,k,ids),pf,key.size(),EgrepV1.utf8);
+    } catch (java.io.IOException|RuntimeException e) { return null; } //MISSING, TRUNCATED OR FOREIGN FILE: A MISS, RECOMPILED AND OVERWRITTEN
+  }
+  private static void touch(java.nio.file.Path f) { try { java.nio.file.Files.setLastModifiedTime(f,java.nio.file.attribute.FileTime.fromMillis(System.currentTimeMillis())); } catch (java.io.IOException e) { } }
+  private static void store(java.nio.file.Path f,java.util.List<String> key,MultiPattern p) {
+    if (p.engine instanceof Glushkov) return; //REBUILT FROM THE TREE FASTER THAN THE FILE IS READ
+    DFAEngine d=p.engine instanceof DFAEngine?(DFAEngine)p.engine:null; byte[] lit=p.prefilter==null?null:p.prefilter.lit;
+    long size=16+16; for (String s:key) size+=4+2L*s.length(); if (d!=null) { size+=256+4+(lit==null?0:lit.length)+4L*d.tt.length; if (d.ids!=null) for (int[] x:d.ids) size+=4+(x==null?0:4L*x.length); }
+    if (size>DISK_MAX/4) return;
+    java.nio.ByteBuffer b=java.nio.ByteBuffer.allocate((int)size); b.putInt(MAGIC).putInt(VERSION).putInt(EgrepV1.utf8?1:0).putInt(key.size()); for (String s:key) { b.putInt(s.length()); for (int i=0;i<s.length();i++) b.putChar(s.charAt(i)); }
+    if (d==null) b.putInt(0).putInt(0).putInt(-1).putInt(0);
+    else {
+      b.putInt(d.k).putInt(d.fa).putInt(d.tt.length/d.k).putInt(d.ids!=null?1:0); for (int i=0;i<256;i++) b.put((byte)d.cls[i]);
+      if (lit==null) b.putInt(-1); else b.putInt(lit.length).put(lit);
+      b.asIntBuffer().put(d.tt); b.position(b.position()+4*d.tt.length);
+      if (d.ids!=null) for (int[] x:d.ids) { if (x==null) { b.putInt(-1); continue; } b.putInt(x.length); b.asIntBuffer().put(x); b.position(b.position()+4*x.length); }
+    }
+    //WRITTEN TO A TEMPORARY FILE THEN RENAMED: A CONCURRENT RUN SEES THE WHOLE FILE OR NONE. ANY I/O ERROR ONLY COSTS THE CACHING
+    java.nio.file.Path t=null;
+    try { java.nio.file.Files.createDirectories(dir); t=java.nio.file.Files.createTempFile(dir,"part",".tmp"); java.nio.file.Files.write(t,b.array()); java.nio.file.Files.move(t,f,java.nio.file.StandardCopyOption.REPLACE_EXISTING,java.nio.file.StandardCopyOption.ATOMIC_MOVE); evict(); }
+    catch (java.io.IOException e) { if (t!=null) try { java.nio.file.Files.deleteIfExists(t); } catch (java.io.IOException x) { } }
+  }
+  //DISK LRU: load() TOUCHES A FILE ON EACH HIT, SO THE OLDEST MODIFICATION TIMES GO FIRST
+  private static void evict() throws java.io.IOException {
+    java.util.List<java.io.File> fs=new java.util.ArrayList<>(); long total=0;
+    try (java.nio.file.DirectoryStream<java.nio.file.Path> ds=java.nio.file.Files.newDirectoryStream(dir,"*.dfa")) { for (java.nio.file.Path x:ds) { java.io.File g=x.toFile(); fs.add(g); total+=g.length(); } }
+    if (total<=DISK_MAX&&fs.size()<=DISK_FILES) return; fs.sort(java.util.Comparator.comparingLong(java.io.File::lastModified));
+    for (int i=0;i<fs.size()&&(total>DISK_MAX||fs.size()-i>DISK_FILES);i++) { long l=fs.get(i).length(); if (fs.get(i).delete()) total-=l; }
+  }
+}
@@ -0,0 +1,37 @@
+/**
+ * Préfiltre littéral : une chaîne que tout match du motif contient forcément (extraite de l'arbre par of), cherchée
+ * par Boyer-Moore-Horspool, ou 8 octets à la fois quand elle n'a qu'un octet. La recherche saute directement aux
+ * lignes qui la contiennent et le DFA ne tourne que sur celles-là.
+ */
+class Prefilter {
+  final String s; final byte[] lit; final int[] shift=new int[256];
+  Prefilter(String s) { this.s=s; lit=s.getBytes(java.nio.charset.StandardCharsets.ISO_8859_1); int n=lit.length; java.util.Arrays.fill(shift,n); for (int k=0;k<n-1;k++) shift[lit[k]&0xFF]=n-1-k; }
+  /** Préfiltre du motif t (avant unanchored), ou null si aucun littéral n'est obligatoire. */
+  static Prefilter of(RegExTree t) { String m=facts(t)[3]; return m.isEmpty()?null:new Prefilter(m); }
+  //{EXACT WORD (null IF t MATCHES MORE THAN ONE), REQUIRED PREFIX, REQUIRED SUFFIX, LONGEST REQUIRED FACTOR} OF t
+  private static String[] facts(RegExTree t) {
+    if (t.subTrees.isEmpty()) { if (t.root==EgrepV1.D||t.root>255) return new String[]{null,"","",""}; String c=String.valueOf((char)t.root); return new String[]{c,c,c,c}; }
+    String[] a=facts(t.subTrees.get(0)); if (t.root==EgrepV1.E) return new String[]{null,"","",""}; if (t.root==EgrepV1.PL) return new String[]{null,a[1],a[2],a[3]};
+    String[] b=facts(t.subTrees.get(1)); String x,p,s;
+    if (t.root==EgrepV1.C) { x=a[0]!=null&&b[0]!=null?a[0]+b[0]:null; p=a[0]!=null?a[0]+b[1]:a[1]; s=b[0]!=null?a[2]+b[0]:b[2]; return new String[]{x,p,s,longest(x,p,s,a[3],b[3],a[2]+b[1])}; }
+    x=a[0]!=null&&a[0].equals(b[0])?a[0]:null; int i=0; while (i<a[1].length()&&i<b[1].length()&&a[1].charAt(i)==b[1].charAt(i)) i++; p=a[1].substring(0,i);
+    i=0; while (i<a[2].length()&&i<b[2].length()&&a[2].charAt(a[2].length()-1-i)==b[2].charAt(b[2].length()-1-i)) i++; s=a[2].substring(a[2].length()-i);
+    return new String[]{x,p,s,longest(x,p,s,common(a[3],b[3]))};
+  }
+  private static String longest(String... v) { String r=""; for (String s:v) if (s!=null&&s.length()>r.length()) r=s; return r; }
+  /** Plus longue sous-chaîne commune à a et b (programmation dynamique sur une ligne). */
+  private static String common(String a,String b) { int[] L=new int[b.length()+1]; int best=0,end=0; for (int i=1;i<=a.length();i++) for (int j=b.length();j>=1;j--) { L[j]=a.charAt(i-1)==b.charAt(j-1)?L[j-1]+1:0; if (L[j]>best) { best=L[j]; end=i; } } return a.substring(end-best,end); }
+  /** Indice de la première occurrence qui commence dans b[i..m) et tient dans b[i..m), ou -1. */
+  int find(java.nio.ByteBuffer b,int i,int m) {
+    int n=lit.length; if (n==1) return memchr(b,i,m,lit[0]); byte last=lit[n-1];
+    for (int j=i+n-1;j<m;j+=shift[b.get(j)&0xFF]) if (b.get(j)==last) { int k=n-2,o=j-n+1; while (k>=0&&b.get(o+k)==lit[k]) k--; if (k<0) return o; }
+    return -1;
+  }
+  /** Début de la ligne de la prochaine occurrence dans b[i..m) (i est un début de ligne). Sans occurrence : m si la fenêtre est la dernière, sinon le début de la ligne où une occurrence coupée par la fin de fenêtre pourrait commencer. */
+  int skip(java.nio.ByteBuffer b,int i,int m,boolean last) { int j=find(b,i,m); if (j<0) { if (last) return m; j=Math.max(i,m-lit.length+1); } int k=j-1; while (k>=i&&b.get(k)!='\n') k--; return k+1; }
+  //SWAR: A WORD HOLDS c IFF x=w^ccccccccc HAS A ZERO BYTE, I.E. (x-0x01..01)&~x&0x80..80 != 0
+  private static int memchr(java.nio.ByteBuffer b,int i,int m,byte c) {
+    long p=(c&0xFFL)*0x0101010101010101L; for (;i+8<=m;i+=8) { long x=b.getLong(i)^p; if (((x-0x0101010101010101L)&~x&0x8080808080808080L)!=0) break; }
+    for (;i<m;i++) if (b.get(i)==c) return i; return -1;
+  }
+}
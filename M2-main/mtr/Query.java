@@ -0,0 +1,20 @@
+/** Requête de trigrammes : tous les blocs (ALL), les blocs qui ont un trigramme (TRI), ou un ET / OU de sous-requêtes. */
+final class Query {
+  static final int ALL=0,TRI=1,AND=2,OR=3; static final Query ALL_BLOCKS=new Query(ALL,0,new Query[0]);
+  final int op,tri; final Query[] subs;
+  private Query(int op,int tri,Query[] subs) { this.op=op; this.tri=tri; this.subs=subs; }
+  static Query and(Query a,Query b) { return a.op==ALL?b:b.op==ALL?a:join(AND,a,b); }
+  static Query or(Query a,Query b) { return a.op==ALL||b.op==ALL?ALL_BLOCKS:join(OR,a,b); }
+  //FLATTENED, EACH SUB-QUERY ONCE: THE CONCATENATIONS OF THE PLANNER ADD THE SAME TRIGRAMS AGAIN AND AGAIN
+  private static Query join(int op,Query a,Query b) { java.util.Set<Query> s=new java.util.LinkedHashSet<>(); for (Query x:new Query[]{a,b}) if (x.op==op) s.addAll(java.util.Arrays.asList(x.subs)); else s.add(x); return s.size()==1?s.iterator().next():new Query(op,0,s.toArray(new Query[0])); }
+  public boolean equals(Object o) { return o instanceof Query&&((Query)o).op==op&&((Query)o).tri==tri&&java.util.Arrays.equals(((Query)o).subs,subs); }
+  public int hashCode() { return 31*(31*op+tri)+java.util.Arrays.hashCode(subs); }
+  /** Tous les trigrammes de s (ALL si s a moins de 3 octets). */
+  static Query of(String s) { Query q=ALL_BLOCKS; for (int i=0;i+3<=s.length();i++) q=and(q,new Query(TRI,s.charAt(i)<<16|s.charAt(i+1)<<8|s.charAt(i+2),null)); return q; }
+  /** L'un des mots de s. */
+  static Query any(java.util.Set<String> s) { Query q=null; for (String x:s) { Query y=of(x); if (y.op==ALL) return ALL_BLOCKS; q=q==null?y:or(q,y); } return q==null?ALL_BLOCKS:q; }
+  public String toString() {
+    if (op==ALL) return "*"; if (op==TRI) { StringBuilder b=new StringBuilder("\""); for (int k=16;k>=0;k-=8) { int c=tri>>>k&255; if (c<32||c>126) b.append(String.format("\\x%02x",c)); else b.append((char)c); } return b.append('"').toString(); }
+    java.util.StringJoiner j=new java.util.StringJoiner(op==AND?" ":" | ","(",")"); for (Query x:subs) j.add(x.toString()); return j.toString();
+  }
+}
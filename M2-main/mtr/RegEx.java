@@ -1,5 +1,6 @@
 import java.util.Scanner;
 import java.util.ArrayList;
+import java.util.ArrayDeque;
 
 import java.lang.Exception;
 
@@ -43,7 +44,7 @@ public class RegEx {
         RegExTree ret = parse();
         System.out.println("  >> Tree result: "+ret.toString()+".");
       } catch (Exception e) {
-        System.err.println("  >> ERROR: syntax error for regEx \""+regEx+"\".");
+        System.err.println("  >> ERROR: syntax error for regEx \""+regEx+"\": "+e.getMessage()+".");
       }
     }
 
@@ -60,10 +61,50 @@ public class RegEx {
     if (false) return example;
     //END DEBUG
 
-    ArrayList<RegExTree> result = new ArrayList<RegExTree>();
-    for (int i=0;i<regEx.length();i++) result.add(new RegExTree(charToRoot(regEx.charAt(i)),new ArrayList<RegExTree>()));
-    
-    return parse(result);
+    //ONE LEFT-TO-RIGHT PASS (SHUNTING-YARD), WITH EXPLICIT STACKS INSTEAD OF RECURSION:
+    //operands HOLDS THE TREES BUILT SO FAR, operators THE PENDING PARENTHESEOUVRANT, ALTERN AND CONCAT, opened THE POSITION OF EACH OPEN PARENTHESIS
+    //PRECEDENCE ETOILE > CONCAT > ALTERN, ALL LEFT-ASSOCIATIVE: SAME TREES AS THE FORMER LIST REWRITING, IN LINEAR TIME
+    ArrayDeque<RegExTree> operands = new ArrayDeque<RegExTree>();
+    ArrayDeque<Integer> operators = new ArrayDeque<Integer>();
+    ArrayDeque<Integer> opened = new ArrayDeque<Integer>();
+    boolean afterOperand = false;
+    for (int i=0;i<regEx.length();i++) {
+      int root = charToRoot(regEx.charAt(i));
+      if (root==ETOILE) {
+        if (!afterOperand) throw new Exception("nothing to repeat at position "+i);
+        ArrayList<RegExTree> subTrees = new ArrayList<RegExTree>();
+        subTrees.add(operands.pop());
+        operands.push(new RegExTree(ETOILE, subTrees));
+      } else if (root==ALTERN) {
+        if (!afterOperand) throw new Exception("empty alternative at position "+i);
+        reduce(operands, operators, ALTERN);
+        operators.push(ALTERN);
+        afterOperand = false;
+      } else if (root==PARENTHESEFERMANT) {
+        if (!afterOperand) throw new Exception("empty group or alternative at position "+i);
+        reduce(operands, operators, PARENTHESEOUVRANT);
+        if (operators.isEmpty()) throw new Exception("mismatched parenthesis at position "+i);
+        operators.pop();
+        opened.pop();
+      } else {
+        if (afterOperand) {
+          reduce(operands, operators, CONCAT);
+          operators.push(CONCAT);
+        }
+        if (root==PARENTHESEOUVRANT) {
+          operators.push(PARENTHESEOUVRANT);
+          opened.push(i);
+          afterOperand = false;
+        } else {
+          operands.push(new RegExTree(root, new ArrayList<RegExTree>()));
+          afterOperand = true;
+        }
+      }
+    }
+    if (!afterOperand) throw new Exception("unexpected end of regEx at position "+regEx.length());
+    reduce(operands, operators, PARENTHESEOUVRANT);
+    if (!operators.isEmpty()) throw new Exception("mismatched parenthesis at position "+opened.peek());
+    return operands.pop();
   }
   private static int charToRoot(char c) {
     if (c=='.') return DOT;
@@ -73,136 +114,16 @@ public class RegEx {
     if (c==')') return PARENTHESEFERMANT;
     return (int)c;
   }
-  private static RegExTree parse(ArrayList<RegExTree> result) throws Exception {
-    while (containParenthese(result)) result=processParenthese(result);
-    while (containEtoile(result)) result=processEtoile(result);
-    while (containConcat(result)) result=processConcat(result);
-    while (containAltern(result)) result=processAltern(result);
-
-    if (result.size()>1) throw new Exception();
-
-    return removeProtection(result.get(0));
-  }
-  private static boolean containParenthese(ArrayList<RegExTree> trees) {
-    for (RegExTree t: trees) if (t.root==PARENTHESEFERMANT || t.root==PARENTHESEOUVRANT) return true;
-    return false;
-  }
-  private static ArrayList<RegExTree> processParenthese(ArrayList<RegExTree> trees) throws Exception {
-    ArrayList<RegExTree> result = new ArrayList<RegExTree>();
-    boolean found = false;
-    for (RegExTree t: trees) {
-      if (!found && t.root==PARENTHESEFERMANT) {
-        boolean done = false;
-        ArrayList<RegExTree> content = new ArrayList<RegExTree>();
-        while (!done && !result.isEmpty())
-          if (result.get(result.size()-1).root==PARENTHESEOUVRANT) { done = true; result.remove(result.size()-1); }
-          else content.add(0,result.remove(result.size()-1));
-        if (!done) throw new Exception();
-        found = true;
-        ArrayList<RegExTree> subTrees = new ArrayList<RegExTree>();
-        subTrees.add(parse(content));
-        result.add(new RegExTree(PROTECTION, subTrees));
-      } else {
-        result.add(t);
-      }
-    }
-    if (!found) throw new Exception();
-    return result;
-  }
-  private static boolean containEtoile(ArrayList<RegExTree> trees) {
-    for (RegExTree t: trees) if (t.root==ETOILE && t.subTrees.isEmpty()) return true;
-    return false;
-  }
-  private static ArrayList<RegExTree> processEtoile(ArrayList<RegExTree> trees) throws Exception {
-    ArrayList<RegExTree> result = new ArrayList<RegExTree>();
-    boolean found = false;
-    for (RegExTree t: trees) {
-      if (!found && t.root==ETOILE && t.subTrees.isEmpty()) {
-        if (result.isEmpty()) throw new Exception();
-        found = true;
-        RegExTree last = result.remove(result.size()-1);
-        ArrayList<RegExTree> subTrees = new ArrayList<RegExTree>();
-        subTrees.add(last);
-        result.add(new RegExTree(ETOILE, subTrees));
-      } else {
-        result.add(t);
-      }
-    }
-    return result;
-  }
-  private static boolean containConcat(ArrayList<RegExTree> trees) {
-    boolean firstFound = false;
-    for (RegExTree t: trees) {
-      if (!firstFound && t.root!=ALTERN) { firstFound = true; continue; }
-      if (firstFound) if (t.root!=ALTERN) return true; else firstFound = false;
+  //APPLY THE PENDING OPERATORS ABOVE THE LAST OPEN PARENTHESIS THAT BIND AT LEAST AS TIGHTLY AS op (ALL OF THEM FOR op==PARENTHESEOUVRANT)
+  private static void reduce(ArrayDeque<RegExTree> operands, ArrayDeque<Integer> operators, int op) {
+    while (!operators.isEmpty() && operators.peek()!=PARENTHESEOUVRANT && (op!=CONCAT || operators.peek()==CONCAT)) {
+      RegExTree right = operands.pop();
+      RegExTree left = operands.pop();
+      ArrayList<RegExTree> subTrees = new ArrayList<RegExTree>();
+      subTrees.add(left);
+      subTrees.add(right);
+      operands.push(new RegExTree(operators.pop(), subTrees));
     }
-    return false;
-  }
-  private static ArrayList<RegExTree> processConcat(ArrayList<RegExTree> trees) throws Exception {
-    ArrayList<RegExTree> result = new ArrayList<RegExTree>();
-    boolean found = false;
-    boolean firstFound = false;
-    for (RegExTree t: trees) {
-      if (!found && !firstFound && t.root!=ALTERN) {
-        firstFound = true;
-        result.add(t);
-        continue;
-      }
-      if (!found && firstFound && t.root==ALTERN) {
-        firstFound = false;
-        result.add(t);
-        continue;
-      }
-      if (!found && firstFound && t.root!=ALTERN) {
-        found = true;
-        RegExTree last = result.remove(result.size()-1);
-        ArrayList<RegExTree> subTrees = new ArrayList<RegExTree>();
-        subTrees.add(last);
-        subTrees.add(t);
-        result.add(new RegExTree(CONCAT, subTrees));
-      } else {
-        result.add(t);
-      }
-    }
-    return result;
-  }
-  private static boolean containAltern(ArrayList<RegExTree> trees) {
-    for (RegExTree t: trees) if (t.root==ALTERN && t.subTrees.isEmpty()) return true;
-    return false;
-  }
-  private static ArrayList<RegExTree> processAltern(ArrayList<RegExTree> trees) throws Exception {
-    ArrayList<RegExTree> result = new ArrayList<RegExTree>();
-    boolean found = false;
-    RegExTree gauche = null;
-    boolean done = false;
-    for (RegExTree t: trees) {
-      if (!found && t.root==ALTERN && t.subTrees.isEmpty()) {
-        if (result.isEmpty()) throw new Exception();
-        found = true;
-        gauche = result.remove(result.size()-1);
-        continue;
-      }
-      if (found && !done) {
-        if (gauche==null) throw new Exception();
-        done=true;
-        ArrayList<RegExTree> subTrees = new ArrayList<RegExTree>();
-        subTrees.add(gauche);
-        subTrees.add(t);
-        result.add(new RegExTree(ALTERN, subTrees));
-      } else {
-        result.add(t);
-      }
-    }
-    return result;
-  }
-  private static RegExTree removeProtection(RegExTree tree) throws Exception {
-    if (tree.root==PROTECTION && tree.subTrees.size()!=1) throw new Exception();
-    if (tree.subTrees.isEmpty()) return tree;
-    if (tree.root==PROTECTION) return removeProtection(tree.subTrees.get(0));
-
-    ArrayList<RegExTree> subTrees = new ArrayList<RegExTree>();
-    for (RegExTree t: tree.subTrees) subTrees.add(removeProtection(t));
-    return new RegExTree(tree.root, subTrees);
   }
   
   //EXAMPLE
@@ -223,28 +144,28 @@ public class RegEx {
     subTrees.add(dotBCEtoile);
     return new RegExTree(ALTERN, subTrees);
   }
-}
 
-//UTILITARY CLASS
-class RegExTree {
-  protected int root;
-  protected ArrayList<RegExTree> subTrees;
-  public RegExTree(int root, ArrayList<RegExTree> subTrees) {
-    this.root = root;
-    this.subTrees = subTrees;
-  }
-  //FROM TREE TO PARENTHESIS
-  public String toString() {
-    if (subTrees.isEmpty()) return rootToString();
-    String result = rootToString()+"("+subTrees.get(0).toString();
-    for (int i=1;i<subTrees.size();i++) result+=","+subTrees.get(i).toString();
-    return result+")";
-  }
-  private String rootToString() {
-    if (root==RegEx.CONCAT) return ".";
-    if (root==RegEx.ETOILE) return "*";
-    if (root==RegEx.ALTERN) return "|";
-    if (root==RegEx.DOT) return ".";
-    return Character.toString((char)root);
+  //UTILITARY CLASS
+  static class RegExTree {
+    protected int root;
+    protected ArrayList<RegExTree> subTrees;
+    public RegExTree(int root, ArrayList<RegExTree> subTrees) {
+      this.root = root;
+      this.subTrees = subTrees;
+    }
+    //FROM TREE TO PARENTHESIS
+    public String toString() {
+      if (subTrees.isEmpty()) return rootToString();
+      String result = rootToString()+"("+subTrees.get(0).toString();
+      for (int i=1;i<subTrees.size();i++) result+=","+subTrees.get(i).toString();
+      return result+")";
+    }
+    private String rootToString() {
+      if (root==RegEx.CONCAT) return ".";
+      if (root==RegEx.ETOILE) return "*";
+      if (root==RegEx.ALTERN) return "|";
+      if (root==RegEx.DOT) return ".";
+      return Character.toString((char)root);
+    }
   }
 }
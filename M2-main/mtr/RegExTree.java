@@ -0,0 +1,4 @@
+/** Arbre syntaxique d'un motif (step1) : root est un caractère ou un opérateur (EgrepV1.C, E, A, D, R). */
+class RegExTree { int root,lo,hi; java.util.ArrayList<RegExTree> subTrees; RegExTree(int r,java.util.ArrayList<RegExTree> s) { root=r; subTrees=s; }
+  /** Feuille R : un octet de lo à hi (le « . » UTF-8). */
+  RegExTree(int lo,int hi) { root=EgrepV1.R; this.lo=lo; this.hi=hi; subTrees=new java.util.ArrayList<>(); } }
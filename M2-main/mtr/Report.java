@@ -0,0 +1,10 @@
+/**
+ * Ce que la recherche affiche : les lignes trouvées (par défaut), seulement les matchs (-o), le nombre de lignes
+ * trouvées (-c) ou les fichiers qui en ont (-l) ; devant chaque ligne, le nom du fichier (names), le numéro de
+ * ligne (-n) et la position en octets de la ligne, ou du match avec -o (-b).
+ */
+class Report {
+  final boolean only,count,list,lines,bytes,names;
+  Report(boolean only,boolean count,boolean list,boolean lines,boolean bytes,boolean names) { this.only=only; this.count=count; this.list=list; this.lines=lines; this.bytes=bytes; this.names=names; }
+  static final Report PLAIN=new Report(false,false,false,false,false,false);
+}
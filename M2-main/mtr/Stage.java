@@ -0,0 +1,2 @@
+/** Une étape en cours : son début, et son événement JFR s'il y a un enregistrement. */
+final class Stage { final int id; final long t0=System.nanoTime(); Object jfr; Stage(int id) { this.id=id; } }
@@ -0,0 +1,58 @@
+/**
+ * Mesures de la chaîne, pour tout le processus. Pour chaque étape (parse, step2, step3, step4, Aho-Corasick, Glushkov, bytecode, index, scan) :
+ * nombre d'appels, temps cumulé et plus long appel, et taille produite (caractères du motif, états du NDFA, du DFA,
+ * du DFA minimal, positions, octets de bytecode, octets indexés, octets parcourus) ; plus les accès au cache, les abandons de step3 et les lignes trouvées.
+ * Chaque étape est aussi un événement JFR (egrepv1.Stage, egrepv1.Scan) quand un enregistrement tourne ; sinon les
+ * classes de JFR ne sont pas chargées (elles coûtent plus que toute la compilation au démarrage). values() en donne une photographie aux noms à la Micrometer (egrep.step3.states...), register() la
+ * publie en JMX (egrepv1:type=Stats), report() est le texte de --stats.
+ */
+public final class Stats {
+  static final int PARSE=0,STEP2=1,STEP3=2,STEP4=3,AHO=4,GLUSHKOV=5,CODEGEN=6,INDEX=7,SCAN=8,GAVE_UP=0,MEMORY=1,DISK=2,COMPILED=3,LINES=4;
+  private static final String[] STAGES={"parse","step2","step3","step4","aho","glushkov","codegen","index","scan"},UNITS={"chars","states","states","states","states","positions","bytes","bytes","bytes"},COUNTS={"step3.gaveup","cache.memory","cache.disk","cache.miss","scan.lines"};
+  private static final java.util.concurrent.atomic.AtomicLongArray calls=new java.util.concurrent.atomic.AtomicLongArray(9),nanos=new java.util.concurrent.atomic.AtomicLongArray(9),
+    max=new java.util.concurrent.atomic.AtomicLongArray(9),size=new java.util.concurrent.atomic.AtomicLongArray(9),counts=new java.util.concurrent.atomic.AtomicLongArray(5);
+  private Stats() { }
+  static Stage begin(int stage) { Stage e=new Stage(stage); if (jdk.jfr.FlightRecorder.isInitialized()) e.jfr=Jfr.begin(stage); return e; }
+  /** Fin de l'étape commencée par begin ; n : sa taille (UNITS). */
+  static void end(Stage e,long n) { record(e.id,System.nanoTime()-e.t0,n); if (e.jfr!=null) Jfr.stage(e.jfr,STAGES[e.id],n); }
+  static Stage scan() { return begin(SCAN); }
+  static void scanned(Stage e,String source,long bytes,long lines) { record(SCAN,System.nanoTime()-e.t0,bytes); counts.addAndGet(LINES,lines); if (e.jfr!=null) Jfr.scan(e.jfr,source,bytes,lines); }
+  static void count(int c) { counts.incrementAndGet(c); }
+  private static void record(int s,long t,long n) { calls.incrementAndGet(s); nanos.addAndGet(s,t); size.addAndGet(s,n); max.accumulateAndGet(s,t,Math::max); }
+  /** Photographie des mesures : egrep.<étape>.calls, .nanos, .max.nanos, .<unité>, et les compteurs (egrep.cache.disk...). */
+  public static java.util.Map<String,Long> values() {
+    java.util.Map<String,Long> m=new java.util.LinkedHashMap<>();
+    for (int s=0;s<STAGES.length;s++) { String p="egrep."+STAGES[s]; m.put(p+".calls",calls.get(s)); m.put(p+".nanos",nanos.get(s)); m.put(p+".max.nanos",max.get(s)); m.put(p+"."+UNITS[s],size.get(s)); }
+    for (int c=0;c<COUNTS.length;c++) m.put("egrep."+COUNTS[c],counts.get(c));
+    Runtime r=Runtime.getRuntime(); m.put("jvm.heap.used",r.totalMemory()-r.freeMemory()); m.put("jvm.heap.max",r.maxMemory()); return m;
+  }
+  public static void reset() { for (int s=0;s<STAGES.length;s++) { calls.set(s,0); nanos.set(s,0); max.set(s,0); size.set(s,0); } for (int c=0;c<COUNTS.length;c++) counts.set(c,0); }
+  /** Publie les mesures en JMX sous egrepv1:type=Stats (une seule fois). */
+  public static synchronized void register() throws Exception {
+    javax.management.MBeanServer s=java.lang.management.ManagementFactory.getPlatformMBeanServer(); javax.management.ObjectName n=new javax.management.ObjectName("egrepv1:type=Stats");
+    if (!s.isRegistered(n)) s.registerMBean(new StatsMXBean() { public java.util.Map<String,Long> getValues() { return values(); } public void reset() { Stats.reset(); } },n);
+  }
+  public interface StatsMXBean { java.util.Map<String,Long> getValues(); void reset(); }
+  /** Rapport de --stats ; wall : durée de la recherche (de la première lecture à la dernière écriture). */
+  static String report(long wall) {
+    StringBuilder b=new StringBuilder();
+    for (int s=0;s<STAGES.length;s++) if (calls.get(s)>0) b.append(String.format(java.util.Locale.ROOT,"%-8s %10.3f ms  %5d call%s  max %9.3f ms  %,d %s%n",STAGES[s],nanos.get(s)/1e6,calls.get(s),calls.get(s)>1?"s":" ",max.get(s)/1e6,size.get(s),UNITS[s]));
+    if (counts.get(GAVE_UP)>0) b.append("step3    gave up ").append(counts.get(GAVE_UP)).append(" time(s): Glushkov or lazy DFA\n");
+    b.append(String.format(java.util.Locale.ROOT,"cache    %d memory, %d disk, %d compiled%n",counts.get(MEMORY),counts.get(DISK),counts.get(COMPILED)));
+    long bytes=size.get(SCAN),lines=counts.get(LINES); double sec=wall/1e9;
+    if (calls.get(SCAN)>0) b.append(String.format(java.util.Locale.ROOT,"search   %,d bytes, %,d lines matched: %.1f MB/s, %,.0f lines/s in %.3f s%n",bytes,lines,bytes/1e6/sec,lines/sec,sec));
+    long peak=0; for (java.lang.management.MemoryPoolMXBean p:java.lang.management.ManagementFactory.getMemoryPoolMXBeans()) if (p.getType()==java.lang.management.MemoryType.HEAP) peak+=p.getPeakUsage().getUsed();
+    Runtime r=Runtime.getRuntime(); b.append(String.format(java.util.Locale.ROOT,"memory   heap %.1f MB used, %.1f MB peak, %.1f MB max%n",(r.totalMemory()-r.freeMemory())/1048576.0,peak/1048576.0,r.maxMemory()/1048576.0));
+    return b.toString();
+  }
+}
+//ONLY REACHED WHILE A RECORDING RUNS: LOADING THE EVENT CLASSES REGISTERS THEM WITH JFR
+final class Jfr {
+  static Object begin(int stage) { jdk.jfr.Event e=stage==Stats.SCAN?new ScanEvent():new StageEvent(); e.begin(); return e; }
+  static void stage(Object o,String stage,long size) { StageEvent e=(StageEvent)o; e.end(); if (e.shouldCommit()) { e.stage=stage; e.size=size; e.commit(); } }
+  static void scan(Object o,String source,long bytes,long lines) { ScanEvent e=(ScanEvent)o; e.end(); if (e.shouldCommit()) { e.source=source; e.bytes=bytes; e.lines=lines; e.commit(); } }
+}
+@jdk.jfr.Name("egrepv1.Stage") @jdk.jfr.Label("Pipeline stage") @jdk.jfr.Category("egrepv1")
+class StageEvent extends jdk.jfr.Event { @jdk.jfr.Label("Stage") String stage; @jdk.jfr.Label("Size") long size; }
+@jdk.jfr.Name("egrepv1.Scan") @jdk.jfr.Label("Scan") @jdk.jfr.Category("egrepv1")
+class ScanEvent extends jdk.jfr.Event { @jdk.jfr.Label("Source") String source; @jdk.jfr.Label("Bytes") @jdk.jfr.DataAmount long bytes; @jdk.jfr.Label("Lines matched") long lines; }
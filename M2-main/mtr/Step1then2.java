@@ -1,5 +1,6 @@
 import java.util.Scanner;
 import java.util.ArrayList;
+import java.util.ArrayDeque;
 
 import java.lang.Exception;
 
@@ -45,7 +46,7 @@ public class Step1then2 {
         ret = parse();
         System.out.println("  >> Tree result: "+ret.toString()+".");
       } catch (Exception e) {
-        System.err.println("  >> ERROR: syntax error for regEx \""+regEx+"\".");
+        System.err.println("  >> ERROR: syntax error for regEx \""+regEx+"\": "+e.getMessage()+".");
       }
       NDFAutomaton ndfa = step2_AhoUllman(ret);
       System.out.println("  >> NDFA construction:\n\nBEGIN NDFA\n"+ndfa.toString()+"END NDFA.\n");
@@ -58,10 +59,50 @@ public class Step1then2 {
 
   //FROM REGEX TO SYNTAX TREE
   private static RegExTree parse() throws Exception {
-    ArrayList<RegExTree> result = new ArrayList<RegExTree>();
-    for (int i=0;i<regEx.length();i++) result.add(new RegExTree(charToRoot(regEx.charAt(i)),new ArrayList<RegExTree>()));
-    
-    return parse(result);
+    //ONE LEFT-TO-RIGHT PASS (SHUNTING-YARD), WITH EXPLICIT STACKS INSTEAD OF RECURSION:
+    //operands HOLDS THE TREES BUILT SO FAR, operators THE PENDING PARENTHESEOUVRANT, ALTERN AND CONCAT, opened THE POSITION OF EACH OPEN PARENTHESIS
+    //PRECEDENCE ETOILE > CONCAT > ALTERN, ALL LEFT-ASSOCIATIVE: SAME TREES AS THE FORMER LIST REWRITING, IN LINEAR TIME
+    ArrayDeque<RegExTree> operands = new ArrayDeque<RegExTree>();
+    ArrayDeque<Integer> operators = new ArrayDeque<Integer>();
+    ArrayDeque<Integer> opened = new ArrayDeque<Integer>();
+    boolean afterOperand = false;
+    for (int i=0;i<regEx.length();i++) {
+      int root = charToRoot(regEx.charAt(i));
+      if (root==ETOILE) {
+        if (!afterOperand) throw new Exception("nothing to repeat at position "+i);
+        ArrayList<RegExTree> subTrees = new ArrayList<RegExTree>();
+        subTrees.add(operands.pop());
+        operands.push(new RegExTree(ETOILE, subTrees));
+      } else if (root==ALTERN) {
+        if (!afterOperand) throw new Exception("empty alternative at position "+i);
+        reduce(operands, operators, ALTERN);
+        operators.push(ALTERN);
+        afterOperand = false;
+      } else if (root==PARENTHESEFERMANT) {
+        if (!afterOperand) throw new Exception("empty group or alternative at position "+i);
+        reduce(operands, operators, PARENTHESEOUVRANT);
+        if (operators.isEmpty()) throw new Exception("mismatched parenthesis at position "+i);
+        operators.pop();
+        opened.pop();
+      } else {
+        if (afterOperand) {
+          reduce(operands, operators, CONCAT);
+          operators.push(CONCAT);
+        }
+        if (root==PARENTHESEOUVRANT) {
+          operators.push(PARENTHESEOUVRANT);
+          opened.push(i);
+          afterOperand = false;
+        } else {
+          operands.push(new RegExTree(root, new ArrayList<RegExTree>()));
+          afterOperand = true;
+        }
+      }
+    }
+    if (!afterOperand) throw new Exception("unexpected end of regEx at position "+regEx.length());
+    reduce(operands, operators, PARENTHESEOUVRANT);
+    if (!operators.isEmpty()) throw new Exception("mismatched parenthesis at position "+opened.peek());
+    return operands.pop();
   }
   private static int charToRoot(char c) {
     if (c=='.') return DOT;
@@ -71,136 +112,16 @@ public class Step1then2 {
     if (c==')') return PARENTHESEFERMANT;
     return (int)c;
   }
-  private static RegExTree parse(ArrayList<RegExTree> result) throws Exception {
-    while (containParenthese(result)) result=processParenthese(result);
-    while (containEtoile(result)) result=processEtoile(result);
-    while (containConcat(result)) result=processConcat(result);
-    while (containAltern(result)) result=processAltern(result);
-
-    if (result.size()>1) throw new Exception();
-
-    return removeProtection(result.get(0));
-  }
-  private static boolean containParenthese(ArrayList<RegExTree> trees) {
-    for (RegExTree t: trees) if (t.root==PARENTHESEFERMANT || t.root==PARENTHESEOUVRANT) return true;
-    return false;
-  }
-  private static ArrayList<RegExTree> processParenthese(ArrayList<RegExTree> trees) throws Exception {
-    ArrayList<RegExTree> result = new ArrayList<RegExTree>();
-    boolean found = false;
-    for (RegExTree t: trees) {
-      if (!found && t.root==PARENTHESEFERMANT) {
-        boolean done = false;
-        ArrayList<RegExTree> content = new ArrayList<RegExTree>();
-        while (!done && !result.isEmpty())
-          if (result.get(result.size()-1).root==PARENTHESEOUVRANT) { done = true; result.remove(result.size()-1); }
-          else content.add(0,result.remove(result.size()-1));
-        if (!done) throw new Exception();
-        found = true;
-        ArrayList<RegExTree> subTrees = new ArrayList<RegExTree>();
-        subTrees.add(parse(content));
-        result.add(new RegExTree(PROTECTION, subTrees));
-      } else {
-        result.add(t);
-      }
-    }
-    if (!found) throw new Exception();
-    return result;
-  }
-  private static boolean containEtoile(ArrayList<RegExTree> trees) {
-    for (RegExTree t: trees) if (t.root==ETOILE && t.subTrees.isEmpty()) return true;
-    return false;
-  }
-  private static ArrayList<RegExTree> processEtoile(ArrayList<RegExTree> trees) throws Exception {
-    ArrayList<RegExTree> result = new ArrayList<RegExTree>();
-    boolean found = false;
-    for (RegExTree t: trees) {
-      if (!found && t.root==ETOILE && t.subTrees.isEmpty()) {
-        if (result.isEmpty()) throw new Exception();
-        found = true;
-        RegExTree last = result.remove(result.size()-1);
-        ArrayList<RegExTree> subTrees = new ArrayList<RegExTree>();
-        subTrees.add(last);
-        result.add(new RegExTree(ETOILE, subTrees));
-      } else {
-        result.add(t);
-      }
-    }
-    return result;
-  }
-  private static boolean containConcat(ArrayList<RegExTree> trees) {
-    boolean firstFound = false;
-    for (RegExTree t: trees) {
-      if (!firstFound && t.root!=ALTERN) { firstFound = true; continue; }
-      if (firstFound) if (t.root!=ALTERN) return true; else firstFound = false;
-    }
-    return false;
-  }
-  private static ArrayList<RegExTree> processConcat(ArrayList<RegExTree> trees) throws Exception {
-    ArrayList<RegExTree> result = new ArrayList<RegExTree>();
-    boolean found = false;
-    boolean firstFound = false;
-    for (RegExTree t: trees) {
-      if (!found && !firstFound && t.root!=ALTERN) {
-        firstFound = true;
-        result.add(t);
-        continue;
-      }
-      if (!found && firstFound && t.root==ALTERN) {
-        firstFound = false;
-        result.add(t);
-        continue;
-      }
-      if (!found && firstFound && t.root!=ALTERN) {
-        found = true;
-        RegExTree last = result.remove(result.size()-1);
-        ArrayList<RegExTree> subTrees = new ArrayList<RegExTree>();
-        subTrees.add(last);
-        subTrees.add(t);
-        result.add(new RegExTree(CONCAT, subTrees));
-      } else {
-        result.add(t);
-      }
-    }
-    return result;
-  }
-  private static boolean containAltern(ArrayList<RegExTree> trees) {
-    for (RegExTree t: trees) if (t.root==ALTERN && t.subTrees.isEmpty()) return true;
-    return false;
-  }
-  private static ArrayList<RegExTree> processAltern(ArrayList<RegExTree> trees) throws Exception {
-    ArrayList<RegExTree> result = new ArrayList<RegExTree>();
-    boolean found = false;
-    RegExTree gauche = null;
-    boolean done = false;
-    for (RegExTree t: trees) {
-      if (!found && t.root==ALTERN && t.subTrees.isEmpty()) {
-        if (result.isEmpty()) throw new Exception();
-        found = true;
-        gauche = result.remove(result.size()-1);
-        continue;
-      }
-      if (found && !done) {
-        if (gauche==null) throw new Exception();
-        done=true;
-        ArrayList<RegExTree> subTrees = new ArrayList<RegExTree>();
-        subTrees.add(gauche);
-        subTrees.add(t);
-        result.add(new RegExTree(ALTERN, subTrees));
-      } else {
-        result.add(t);
-      }
+  //APPLY THE PENDING OPERATORS ABOVE THE LAST OPEN PARENTHESIS THAT BIND AT LEAST AS TIGHTLY AS op (ALL OF THEM FOR op==PARENTHESEOUVRANT)
+  private static void reduce(ArrayDeque<RegExTree> operands, ArrayDeque<Integer> operators, int op) {
+    while (!operators.isEmpty() && operators.peek()!=PARENTHESEOUVRANT && (op!=CONCAT || operators.peek()==CONCAT)) {
+      RegExTree right = operands.pop();
+      RegExTree left = operands.pop();
+      ArrayList<RegExTree> subTrees = new ArrayList<RegExTree>();
+      subTrees.add(left);
+      subTrees.add(right);
+      operands.push(new RegExTree(operators.pop(), subTrees));
     }
-    return result;
-  }
-  private static RegExTree removeProtection(RegExTree tree) throws Exception {
-    if (tree.root==PROTECTION && tree.subTrees.size()!=1) throw new Exception();
-    if (tree.subTrees.isEmpty()) return tree;
-    if (tree.root==PROTECTION) return removeProtection(tree.subTrees.get(0));
-
-    ArrayList<RegExTree> subTrees = new ArrayList<RegExTree>();
-    for (RegExTree t: tree.subTrees) subTrees.add(removeProtection(t));
-    return new RegExTree(tree.root, subTrees);
   }
   
   //EXAMPLE
@@ -222,147 +143,115 @@ public class Step1then2 {
     subTrees.add(dotBCEtoile);
     return new RegExTree(ALTERN, subTrees);
   }
-  @SuppressWarnings("unchecked")
   private static NDFAutomaton step2_AhoUllman(RegExTree ret) {
-    
+    //SINGLE PASS: EACH SUB-AUTOMATON IS WRITTEN ONCE, DIRECTLY AT ITS FINAL OFFSET, NOTHING IS COPIED AFTERWARDS
+    NDFAutomaton ndfa = new NDFAutomaton();
+    ndfa.size = step2_AhoUllman(ndfa, ret, 0);
+    return ndfa;
+  }
+  private static int step2_AhoUllman(NDFAutomaton ndfa, RegExTree ret, int base) {
+    //IMPLICIT REPRESENTATION HERE: INIT STATE IS ALWAYS base; FINAL STATE IS ALWAYS base+size-1 (size IS RETURNED)
+
     if (ret.subTrees.isEmpty()) {
-      //IMPLICIT REPRESENTATION HERE: INIT STATE IS ALWAYS 0; FINAL STATE IS ALWAYS transitionTable.length-1
-      int[][] tTab = new int[2][256];
-      ArrayList<Integer>[] eTab = new ArrayList[2];
-      
-      //DUMMY VALUES FOR INITIALIZATION
-      for (int i=0;i<tTab.length;i++) for (int col=0;col<256;col++) tTab[i][col]=-1;
-      for (int i=0;i<eTab.length;i++) eTab[i]=new ArrayList<Integer>();
-      
-      if (ret.root!=DOT) tTab[0][ret.root]=1; //transition ret.root from initial state "0" to final state "1"
-      else for (int i=0;i<256;i++) tTab[0][i]=1; //transition DOT from initial state "0" to final state "1"
-      
-      return new NDFAutomaton(tTab,eTab);
+      ndfa.ensure(base+2);
+      if (ret.root!=DOT) ndfa.addTransition(base,ret.root,ret.root,base+1); //transition ret.root from initial state to final state
+      else ndfa.addTransition(base,0,255,base+1); //transition DOT from initial state to final state
+      return 2;
     }
-    
-    if (ret.root==CONCAT) {
-      //IMPLICIT REPRESENTATION HERE: INIT STATE IS ALWAYS 0; FINAL STATE IS ALWAYS transitionTable.length-1
-      NDFAutomaton gauche = step2_AhoUllman(ret.subTrees.get(0));
-      int[][] tTab_g = gauche.transitionTable;
-      ArrayList<Integer>[] eTab_g = gauche.epsilonTransitionTable;
-      NDFAutomaton droite = step2_AhoUllman(ret.subTrees.get(1));
-      int[][] tTab_d = droite.transitionTable;
-      ArrayList<Integer>[] eTab_d = droite.epsilonTransitionTable;
-      int lg=tTab_g.length;
-      int ld=tTab_d.length;
-      int[][] tTab = new int[lg+ld][256];
-      ArrayList<Integer>[] eTab = new ArrayList[lg+ld];
-
-      //DUMMY VALUES FOR INITIALIZATION
-      for (int i=0;i<tTab.length;i++) for (int col=0;col<256;col++) tTab[i][col]=-1;
-      for (int i=0;i<eTab.length;i++) eTab[i]=new ArrayList<Integer>();
-
-      eTab[lg-1].add(lg); //epsilon transition from old final state "left" to old initial state "right"
-
-      for (int i=0;i<lg;i++) for (int col=0;col<256;col++) tTab[i][col]=tTab_g[i][col]; //copy old transitions
-      for (int i=0;i<lg;i++) eTab[i].addAll(eTab_g[i]); //copy old transitions
-      for (int i=lg;i<lg+ld-1;i++) for (int col=0;col<256;col++) if (tTab_d[i-lg][col]!=-1) tTab[i][col]=tTab_d[i-lg][col]+lg; //copy old transitions
-      for (int i=lg;i<lg+ld-1;i++) for (int s: eTab_d[i-lg]) eTab[i].add(s+lg); //copy old transitions
 
-      return new NDFAutomaton(tTab,eTab);
+    if (ret.root==CONCAT) {
+      int lg = step2_AhoUllman(ndfa, ret.subTrees.get(0), base); //left automaton at base
+      ndfa.addEpsilon(base+lg-1,base+lg); //epsilon transition from old final state "left" to old initial state "right"
+      int ld = step2_AhoUllman(ndfa, ret.subTrees.get(1), base+lg); //right automaton just after
+      return lg+ld;
     }
 
     if (ret.root==ALTERN) {
-      //IMPLICIT REPRESENTATION HERE: INIT STATE IS ALWAYS 0; FINAL STATE IS ALWAYS transitionTable.length-1
-      NDFAutomaton gauche = step2_AhoUllman(ret.subTrees.get(0));
-      int[][] tTab_g = gauche.transitionTable;
-      ArrayList<Integer>[] eTab_g = gauche.epsilonTransitionTable;
-      NDFAutomaton droite = step2_AhoUllman(ret.subTrees.get(1));
-      int[][] tTab_d = droite.transitionTable;
-      ArrayList<Integer>[] eTab_d = droite.epsilonTransitionTable;
-      int lg=tTab_g.length;
-      int ld=tTab_d.length;
-      int[][] tTab = new int[2+lg+ld][256];
-      ArrayList<Integer>[] eTab = new ArrayList[2+lg+ld];
-
-      //DUMMY VALUES FOR INITIALIZATION
-      for (int i=0;i<tTab.length;i++) for (int col=0;col<256;col++) tTab[i][col]=-1;
-      for (int i=0;i<eTab.length;i++) eTab[i]=new ArrayList<Integer>();
+      ndfa.ensure(base+1);
+      int lg = step2_AhoUllman(ndfa, ret.subTrees.get(0), base+1); //left automaton after the new initial state
+      int ld = step2_AhoUllman(ndfa, ret.subTrees.get(1), base+1+lg); //right automaton after the left one
+      int fin = base+1+lg+ld;
+      ndfa.ensure(fin+1);
 
-      eTab[0].add(1); //epsilon transition from new initial state to old initial state
-      eTab[0].add(1+lg); //epsilon transition from new initial state to old initial state
-      eTab[1+lg-1].add(2+lg+ld-1); //epsilon transition from old final state to new final state
-      eTab[1+lg+ld-1].add(2+lg+ld-1); //epsilon transition from old final state to new final state
+      ndfa.addEpsilon(base,base+1); //epsilon transition from new initial state to old initial state
+      ndfa.addEpsilon(base,base+1+lg); //epsilon transition from new initial state to old initial state
+      ndfa.addEpsilon(base+lg,fin); //epsilon transition from old final state to new final state
+      ndfa.addEpsilon(base+lg+ld,fin); //epsilon transition from old final state to new final state
 
-      for (int i=1;i<1+lg;i++) for (int col=0;col<256;col++) if (tTab_g[i-1][col]!=-1) tTab[i][col]=tTab_g[i-1][col]+1; //copy old transitions
-      for (int i=1;i<1+lg;i++) for (int s: eTab_g[i-1]) eTab[i].add(s+1); //copy old transitions
-      for (int i=1+lg;i<1+lg+ld-1;i++) for (int col=0;col<256;col++) if (tTab_d[i-1-lg][col]!=-1) tTab[i][col]=tTab_d[i-1-lg][col]+1+lg; //copy old transitions
-      for (int i=1+lg;i<1+lg+ld;i++) for (int s: eTab_d[i-1-lg]) eTab[i].add(s+1+lg); //copy old transitions
-
-      return new NDFAutomaton(tTab,eTab);
+      return 2+lg+ld;
     }
 
     if (ret.root==ETOILE) {
-      //IMPLICIT REPRESENTATION HERE: INIT STATE IS ALWAYS 0; FINAL STATE IS ALWAYS transitionTable.length-1
-      NDFAutomaton fils = step2_AhoUllman(ret.subTrees.get(0));
-      int[][] tTab_fils = fils.transitionTable;
-      ArrayList<Integer>[] eTab_fils = fils.epsilonTransitionTable;
-      int l=tTab_fils.length;
-      int[][] tTab = new int[2+l][256];
-      ArrayList<Integer>[] eTab = new ArrayList[2+l];
-
-      //DUMMY VALUES FOR INITIALIZATION
-      for (int i=0;i<tTab.length;i++) for (int col=0;col<256;col++) tTab[i][col]=-1;
-      for (int i=0;i<eTab.length;i++) eTab[i]=new ArrayList<Integer>();
+      ndfa.ensure(base+1);
+      int l = step2_AhoUllman(ndfa, ret.subTrees.get(0), base+1); //son automaton after the new initial state
+      int fin = base+1+l;
+      ndfa.ensure(fin+1);
 
-      eTab[0].add(1); //epsilon transition from new initial state to old initial state
-      eTab[0].add(2+l-1); //epsilon transition from new initial state to new final state
-      eTab[2+l-2].add(2+l-1); //epsilon transition from old final state to new final state
-      eTab[2+l-2].add(1); //epsilon transition from old final state to old initial state
+      ndfa.addEpsilon(base,base+1); //epsilon transition from new initial state to old initial state
+      ndfa.addEpsilon(base,fin); //epsilon transition from new initial state to new final state
+      ndfa.addEpsilon(base+l,fin); //epsilon transition from old final state to new final state
+      ndfa.addEpsilon(base+l,base+1); //epsilon transition from old final state to old initial state
 
-      for (int i=1;i<2+l-1;i++) for (int col=0;col<256;col++) if (tTab_fils[i-1][col]!=-1) tTab[i][col]=tTab_fils[i-1][col]+1; //copy old transitions
-      for (int i=1;i<2+l-1;i++) for (int s: eTab_fils[i-1]) eTab[i].add(s+1); //copy old transitions
-
-      return new NDFAutomaton(tTab,eTab);
+      return 2+l;
     }
 
-    return null;
+    return 0;
   }
-}
 
-//UTILITARY CLASS
-class RegExTree {
-  protected int root;
-  protected ArrayList<RegExTree> subTrees;
-  public RegExTree(int root, ArrayList<RegExTree> subTrees) {
-    this.root = root;
-    this.subTrees = subTrees;
-  }
-  //FROM TREE TO PARENTHESIS
-  public String toString() {
-    if (subTrees.isEmpty()) return rootToString();
-    String result = rootToString()+"("+subTrees.get(0).toString();
-    for (int i=1;i<subTrees.size();i++) result+=","+subTrees.get(i).toString();
-    return result+")";
+  //UTILITARY CLASS
+  static class RegExTree {
+    protected int root;
+    protected ArrayList<RegExTree> subTrees;
+    public RegExTree(int root, ArrayList<RegExTree> subTrees) {
+      this.root = root;
+      this.subTrees = subTrees;
+    }
+    //FROM TREE TO PARENTHESIS
+    public String toString() {
+      if (subTrees.isEmpty()) return rootToString();
+      String result = rootToString()+"("+subTrees.get(0).toString();
+      for (int i=1;i<subTrees.size();i++) result+=","+subTrees.get(i).toString();
+      return result+")";
+    }
+    private String rootToString() {
+      if (root==Step1then2.CONCAT) return ".";
+      if (root==Step1then2.ETOILE) return "*";
+      if (root==Step1then2.ALTERN) return "|";
+      if (root==Step1then2.DOT) return ".";
+      return Character.toString((char)root);
+    }
   }
-  private String rootToString() {
-    if (root==Step1then2.CONCAT) return ".";
-    if (root==Step1then2.ETOILE) return "*";
-    if (root==Step1then2.ALTERN) return "|";
-    if (root==Step1then2.DOT) return ".";
-    return Character.toString((char)root);
+  static class NDFAutomaton {
+    //IMPLICIT REPRESENTATION HERE: INIT STATE IS ALWAYS 0; FINAL STATE IS ALWAYS size-1
+    //EACH STATE HAS AT MOST ONE CHARACTER-CLASS TRANSITION (low..high --> target) AND AT MOST TWO EPSILON TRANSITIONS (-1 IF NONE)
+    protected int size;
+    protected int[] low = new int[16], high = new int[16], target = new int[16]; //character-class transition
+    protected int[] epsilon1 = new int[16], epsilon2 = new int[16]; //epsilon transitions
+    public NDFAutomaton() {
+      java.util.Arrays.fill(high,-1);
+      java.util.Arrays.fill(epsilon1,-1);
+      java.util.Arrays.fill(epsilon2,-1);
+    }
+    //GROW THE ARRAYS (AMORTIZED DOUBLING) SO THAT STATES 0..n-1 EXIST
+    public void ensure(int n) {
+      if (n<=low.length) return;
+      int old=low.length, m=Math.max(n,2*old);
+      low=java.util.Arrays.copyOf(low,m); high=java.util.Arrays.copyOf(high,m); target=java.util.Arrays.copyOf(target,m);
+      epsilon1=java.util.Arrays.copyOf(epsilon1,m); epsilon2=java.util.Arrays.copyOf(epsilon2,m);
+      java.util.Arrays.fill(high,old,m,-1);
+      java.util.Arrays.fill(epsilon1,old,m,-1);
+      java.util.Arrays.fill(epsilon2,old,m,-1);
+    }
+    public void addTransition(int from, int lo, int hi, int to) { ensure(from+1); low[from]=lo; high[from]=hi; target[from]=to; }
+    public void addEpsilon(int from, int to) { ensure(from+1); if (epsilon1[from]==-1) epsilon1[from]=to; else epsilon2[from]=to; }
+    //PRINT THE AUTOMATON TRANSITION TABLE
+    public String toString() {
+      StringBuilder result=new StringBuilder("Initial state: 0\nFinal state: "+(size-1)+"\nTransition list:\n");
+      for (int i=0;i<size;i++) for (int state: new int[]{epsilon1[i],epsilon2[i]})
+        if (state!=-1) result.append("  "+i+" -- epsilon --> "+state+"\n");
+      for (int i=0;i<size;i++) for (int col=low[i];col<=high[i];col++)
+        result.append("  "+i+" -- "+(char)col+" --> "+target[i]+"\n");
+      return result.toString();
+    }
   }
 }
-class NDFAutomaton {
-  //IMPLICIT REPRESENTATION HERE: INIT STATE IS ALWAYS 0; FINAL STATE IS ALWAYS transitionTable.length-1
-  protected int[][] transitionTable; //ASCII transition
-  protected ArrayList<Integer>[] epsilonTransitionTable; //epsilon transition list
-  public NDFAutomaton(int[][] transitionTable, ArrayList<Integer>[] epsilonTransitionTable) {
-    this.transitionTable=transitionTable;
-    this.epsilonTransitionTable=epsilonTransitionTable;
-  }
-  //PRINT THE AUTOMATON TRANSITION TABLE
-  public String toString() {
-    String result="Initial state: 0\nFinal state: "+(transitionTable.length-1)+"\nTransition list:\n";
-    for (int i=0;i<epsilonTransitionTable.length;i++) for (int state: epsilonTransitionTable[i])
-      result+="  "+i+" -- epsilon --> "+state+"\n";
-    for (int i=0;i<transitionTable.length;i++) for (int col=0;col<256;col++)
-      if (transitionTable[i][col]!=-1) result+="  "+i+" -- "+(char)col+" --> "+transitionTable[i][col]+"\n";
-    return result;
-  }
-}
\ No newline at end of file
@@ -0,0 +1,63 @@
+/**
+ * Recherche sur un flux d'octets (entrée standard) en mémoire bornée : un seul tampon de taille fixe, rempli par
+ * read et parcouru comme une fenêtre de MappedSearch, sans décodage ni String par ligne. L'état du DFA (et du
+ * préfiltre) passe d'un remplissage au suivant ; avant de relire, seule la ligne en cours [ls,n) est ramenée au début
+ * du tampon. Une ligne plus longue que le tampon n'y reste pas : déjà trouvée, elle est écrite au fur et à mesure ;
+ * pas encore, son début part dans un fichier temporaire (spill), relu si elle est trouvée ensuite ; avec -c ou -l,
+ * il est simplement oublié. La sortie est vidée chaque fois que l'entrée n'a plus rien de prêt (tail -f).
+ * Les fichiers gzip passent aussi par ici (Gunzip), avec le nom du fichier devant chaque ligne (pre) s'il y en a plusieurs.
+ */
+class StreamSearch {
+  final Engine d; final Prefilter f; final Matcher m; final Report r; final Out out; final byte[] buf,head=new byte[64]; final java.nio.ByteBuffer b; byte[] pre;
+  //n: BYTES IN buf; i: SCAN POSITION; ls: START OF THE CURRENT LINE IN buf; base: STREAM OFFSET OF buf[0]; held: BYTES OF THE CURRENT LINE ALREADY OUT OF buf
+  int n,i,ls,counted; long base,held,line; boolean streamed; java.nio.channels.FileChannel spill;
+  StreamSearch(Engine d,Prefilter f,Matcher m,Report r,Out out,int size) { this.d=d; this.f=f; this.m=m; this.r=r; this.out=out; buf=new byte[Math.max(2,size)]; b=java.nio.ByteBuffer.wrap(buf); }
+  /** Lignes trouvées dans in, écrites selon r ; renvoie leur nombre (-l : 0 ou 1). */
+  long search(java.io.InputStream in) throws java.io.IOException {
+    long c=0; boolean on=false,mid=false; d.st=0;
+    try {
+      for (int k;(k=in.read(buf,n,buf.length-n))>=0;) {
+        n+=k;
+        //THE LOOP OF MappedSearch.scan OVER buf[i..n): WHEN IT RUNS OUT OF BYTES, on, mid AND d.st SIMPLY WAIT FOR THE NEXT READ
+        while (i<n) {
+          if (!on) { if (d.accept(0)) on=true; else {
+            int e=n; if (f!=null) { if (!mid) { i=ls=f.skip(b,i,n,false); mid=true; } e=i; while (e<n&&buf[e]!='\n') e++; }
+            i=d.run(b,i,e); if (i==e) { if (e==n) break; i=ls=e+1; d.st=0; mid=false; drop(); continue; }
+            if (f==null) start(i); on=true; } }
+          int e=i; while (e<n&&buf[e]!='\n') e++; if (e==n) { i=n; break; }
+          c++; if (r.list) return c; emit(e); i=ls=e+1; d.st=0; on=false; mid=false;
+        }
+        if (!on&&f==null) start(n);
+        refill(on); if (in.available()==0) out.flush();
+      }
+      if (on) { c++; if (!r.list) emit(n); } return c;
+    } finally { if (spill!=null) spill.close(); }
+  }
+  //WITHOUT A PREFILTER THE DFA RUNS OVER WHOLE LINES ('\n' BRINGS IT BACK TO 0): THE CURRENT LINE STARTS AFTER THE LAST '\n' BEFORE x, IF ANY SINCE ls
+  private void start(int x) throws java.io.IOException { int j=x-1; while (j>=ls&&buf[j]!='\n') j--; if (j>=ls) { ls=j+1; drop(); } }
+  //BEFORE THE NEXT READ ONLY THE CURRENT LINE [ls,n) STAYS, MOVED TO THE FRONT; IF IT FILLS buf, ALL BUT ITS LAST BYTE LEAVES (THE LAST ONE MAY BE A '\r' TO DROP)
+  //A LINE FOUND WHILE ITS START IS ALREADY SPILLED IS WRITTEN FROM ITS START: THE SPILL, THEN buf
+  private void refill(boolean on) throws java.io.IOException {
+    if (r.lines) { line+=newlines(counted,ls); counted=ls; } shift(ls); if (n<buf.length) return; int k=n-1;
+    if (on&&!r.only&&!r.count&&!r.list) { if (!streamed) { header(line+1,base-held); if (held>0) out.transfer(spill,0,held); } streamed=true; out.write(buf,0,k); }
+    else if (!r.count&&!r.list) { if (spill==null) spill=java.nio.channels.FileChannel.open(java.nio.file.Files.createTempFile("egrep",".line"),java.nio.file.StandardOpenOption.READ,java.nio.file.StandardOpenOption.WRITE,java.nio.file.StandardOpenOption.DELETE_ON_CLOSE);
+      java.nio.ByteBuffer w=java.nio.ByteBuffer.wrap(buf,0,k); while (w.hasRemaining()) spill.write(w,held+w.position()); }
+    held+=k; shift(k);
+  }
+  private void shift(int k) { if (k==0) return; base+=k; System.arraycopy(buf,k,buf,0,n-k); n-=k; i-=k; ls=Math.max(0,ls-k); counted=Math.max(0,counted-k); }
+  //THE LINE THAT HELD BYTES BELONGED TO IS OVER
+  private void drop() throws java.io.IOException { if (held>0&&spill!=null&&!streamed&&!r.count&&!r.list) spill.truncate(0); held=0; streamed=false; }
+  private long newlines(int from,int to) { long k=0; for (int x=from;x<to;x++) if (buf[x]=='\n') k++; return k; }
+  //LINE [ls,e) OF buf, AFTER ITS held FIRST BYTES
+  private void emit(int e) throws java.io.IOException {
+    if (r.count) return; if (r.lines) { line+=newlines(counted,ls); counted=e+1; } long no=line+1,at=base+ls-held; if (r.lines) line++;
+    int len=e-ls; if (len>0&&buf[e-1]=='\r') len--;
+    if (r.only) {
+      //THE MATCHER NEEDS THE WHOLE LINE: buf, OR THE SPILL FILE WITH THE END OF THE LINE APPENDED, MAPPED
+      java.nio.ByteBuffer s=b; int o=ls; if (held>0) { java.nio.ByteBuffer w=java.nio.ByteBuffer.wrap(buf,ls,len); while (w.hasRemaining()) spill.write(w,held+w.position()-ls); s=spill.map(java.nio.channels.FileChannel.MapMode.READ_ONLY,0,held+len); o=0; }
+      m.reset(s.limit(o+(int)held+len).position(o)); while (m.find()) if (m.end()>m.start()) { header(no,at+m.start()-o); out.write(s,m.start(),m.end()-m.start()); out.write('\n'); } b.clear();
+    } else { if (!streamed) { header(no,at); if (held>0) out.transfer(spill,0,held); } out.write(buf,ls,len); out.write('\n'); }
+    drop();
+  }
+  private void header(long no,long at) throws java.io.IOException { if (pre!=null) out.write(pre); int k=0; if (r.lines) k=Lines.num(head,k,no); if (r.bytes) k=Lines.num(head,k,at); out.write(head,0,k); }
+}
@@ -0,0 +1,177 @@
+/**
+ * Index de trigrammes d'un fichier (option --index), pour les requêtes répétées sur un même corpus. Le fichier est
+ * découpé en blocs d'environ BLOCK octets qui finissent sur un '\n' ; pour chaque trigramme (trois octets d'une même
+ * ligne), l'index donne les blocs qui le contiennent. plan traduit les motifs en une requête ET/OU de trigrammes (Query,
+ * comme Google Code Search) que toute ligne trouvée satisfait : la recherche ne lit que les blocs qui la satisfont.
+ * Un fichier d'index par fichier indexé (dossier dir), projeté en mémoire tel quel. Si le fichier a grandi sans que
+ * la fin de sa partie indexée ait changé, seuls les nouveaux octets sont lus (le dernier bloc est refait) ; sinon
+ * (taille ou date différente) l'index est refait en entier.
+ */
+final class TrigramIndex {
+  static final int VERSION=1,MAGIC=0x45475449,BLOCK=1<<16,TAIL=1<<12,HEAD=44,MAX_SET=16; static final long MIN_SIZE=1<<20;
+  /** Dossier des index (null : pas d'index) : propriété egrep.index, variable EGREP_INDEX, sinon ~/.cache/egrepv1/index. */
+  static java.nio.file.Path dir=defaultDir();
+  private static java.nio.file.Path defaultDir() {
+    String d=System.getProperty("egrep.index",System.getenv("EGREP_INDEX")); if (d!=null) return d.isEmpty()?null:java.nio.file.Paths.get(d);
+    return java.nio.file.Paths.get(System.getProperty("user.home"),".cache","egrepv1","index");
+  }
+  //LAYOUT (BIG-ENDIAN): MAGIC VERSION | SIZE MTIME CRC OF THE LAST TAIL BYTES (LONGS) | B T L | B+1 BLOCK STARTS, THE LAST ONE = SIZE | B+1 LINE COUNTS BEFORE
+  //EACH START | T SORTED TRIGRAMS | THEIR LAST BLOCKS | T+1 OFFSETS INTO THE POSTINGS | POSTINGS: FOR EACH TRIGRAM ITS BLOCKS, AS VARINTS OF THE GAPS (THE FIRST FROM -1) | THE PATH, L BYTES
+  final java.nio.ByteBuffer b; final int blocks,keys; private final int K,O,P;
+  private TrigramIndex(java.nio.ByteBuffer b) { this.b=b; blocks=b.getInt(32); keys=b.getInt(36); K=HEAD+16*(blocks+1); O=K+8*keys; P=O+4*(keys+1); }
+  long size() { return b.getLong(8); }
+  long start(int k) { return b.getLong(HEAD+8*k); }
+  long line(int k) { return b.getLong(HEAD+8*(blocks+1)+8*k); }
+
+  /** Requête satisfaite par toute ligne où l'un des motifs a un match, ou null si elle ne filtre rien. */
+  static Query plan(java.util.List<String> patterns) throws Exception {
+    Query q=null; for (String s:patterns) { Info x=info(EgrepV1.parse(s)); Query y=x.exact!=null?x.fold():Query.and(x.match,Query.and(Query.any(x.prefix),Query.any(x.suffix))); q=q==null?y:Query.or(q,y); }
+    return q==null||q.op==Query.ALL?null:q;
+  }
+  /**
+   * Parties de f à parcourir pour q, par triplets (début, fin, lignes avant le début), la première commençant en 0 (vide s'il le faut) et chacune
+   * d'au plus chunk octets sauf un bloc seul ; null si f n'a pas d'index (plus petit que MIN_SIZE, pas de dossier, erreur d'entrée-sortie).
+   */
+  static long[] parts(java.nio.file.Path f,long n,Query q,long chunk) {
+    if (dir==null||n<MIN_SIZE) return null; Stage st=Stats.begin(Stats.INDEX); long[] done={0}; TrigramIndex x;
+    try { x=open(f,done); } catch (java.io.IOException|RuntimeException e) { Stats.end(st,0); return null; }
+    java.util.BitSet c=x.eval(q); long[] r=new long[3*(x.blocks+1)]; int m=0;
+    for (int k=c==null?0:c.nextSetBit(0);k>=0&&k<x.blocks;) {
+      //CONSECUTIVE CANDIDATE BLOCKS MAKE ONE PART, UP TO chunk BYTES
+      int e=k+1; while (e<x.blocks&&(c==null||c.get(e))&&x.start(e+1)-x.start(k)<=chunk) e++;
+      if (m==0&&k>0) { m=3; } r[m]=x.start(k); r[m+1]=x.start(e); r[m+2]=x.line(k); m+=3; k=c==null?e:c.nextSetBit(e);
+    }
+    Stats.end(st,done[0]); return m==0?new long[3]:java.util.Arrays.copyOf(r,m);
+  }
+  //THE STORED INDEX IF IT IS UP TO DATE, ELSE UPDATED (APPEND) OR REBUILT, WRITTEN BACK; done[0]: BYTES READ FROM f
+  private static TrigramIndex open(java.nio.file.Path f,long[] done) throws java.io.IOException {
+    java.nio.file.Path x=dir.resolve(name(f)); TrigramIndex old=load(x,path(f));
+    try (java.nio.channels.FileChannel ch=java.nio.channels.FileChannel.open(f)) {
+      long n=ch.size(),mt=java.nio.file.Files.getLastModifiedTime(f).toMillis();
+      if (old!=null&&old.size()==n&&old.b.getLong(16)==mt) return old;
+      boolean append=old!=null&&old.blocks>0&&old.size()<n&&crc(ch,old.size())==old.b.getLong(24);
+      Postings p=new Postings(); int keep=append?old.blocks-1:0; long[] starts=new long[16],lines=new long[16]; int B=keep;
+      if (append) { for (int k=0;k<=keep;k++) { starts=grow(starts,k); starts[k]=old.start(k); lines=grow(lines,k); lines[k]=old.line(k); } old.copyTo(p,keep); }
+      //ONE PASS OVER THE NEW BYTES: A BLOCK ENDS ON THE FIRST '\n' PAST BLOCK BYTES; '\n' AND '\r' CUT THE TRIGRAMS, AS THEY CUT THE MATCHES
+      long pos=starts[keep],bs=pos,ln=lines[keep]; int t=0,run=0; java.nio.ByteBuffer r=java.nio.ByteBuffer.allocateDirect(1<<20);
+      while (pos<n) {
+        r.clear().limit((int)Math.min(r.capacity(),n-pos)); int k=ch.read(r,pos); if (k<=0) break;
+        for (int i=0;i<k;i++) { int c=r.get(i)&255; if (c=='\n'||c=='\r') { run=0; if (c=='\n') { ln++; if (pos+i+1-bs>=BLOCK&&pos+i+1<n) { bs=pos+i+1; B++; starts=grow(starts,B); starts[B]=bs; lines=grow(lines,B); lines[B]=ln; } } continue; } t=(t<<8|c)&0xFFFFFF; if (++run>=3) p.add(t,B); }
+        pos+=k;
+      }
+      done[0]=pos-starts[keep]; B++; starts=grow(starts,B); starts[B]=pos; lines=grow(lines,B); lines[B]=ln;
+      TrigramIndex y=new TrigramIndex(p.write(B,starts,lines,pos,mt,crc(ch,pos),path(f))); store(x,y.b); return y;
+    }
+  }
+  private static long[] grow(long[] a,int k) { return k<a.length?a:java.util.Arrays.copyOf(a,2*k); }
+  private static long crc(java.nio.channels.FileChannel ch,long n) throws java.io.IOException {
+    java.nio.ByteBuffer r=java.nio.ByteBuffer.allocate((int)Math.min(n,TAIL)); while (r.hasRemaining()) if (ch.read(r,n-r.capacity()+r.position())<0) break;
+    java.util.zip.CRC32 c=new java.util.zip.CRC32(); c.update(r.flip()); return c.getValue();
+  }
+  private static byte[] path(java.nio.file.Path f) { return f.toAbsolutePath().normalize().toString().getBytes(java.nio.charset.StandardCharsets.UTF_8); }
+  //FILE NAME: TWO HASHES OF THE ABSOLUTE PATH (NOT SHA-256, WHOSE FIRST USE COSTS MORE THAN A QUERY); THE FILE HOLDS THE PATH, SO A COLLISION IS ONLY A REBUILD
+  private static String name(java.nio.file.Path f) { byte[] p=path(f); java.util.zip.CRC32 c=new java.util.zip.CRC32(); c.update(p); return Long.toHexString(c.getValue()<<32|java.util.Arrays.hashCode(p)&0xFFFFFFFFL)+".tri"; }
+  private static TrigramIndex load(java.nio.file.Path x,byte[] path) {
+    try (java.nio.channels.FileChannel c=java.nio.channels.FileChannel.open(x)) {
+      java.nio.MappedByteBuffer b=c.map(java.nio.channels.FileChannel.MapMode.READ_ONLY,0,c.size()); if (c.size()<HEAD||b.getInt(0)!=MAGIC||b.getInt(4)!=VERSION||b.getInt(40)!=path.length) return null;
+      TrigramIndex t=new TrigramIndex(b); long e=t.P+(long)b.getInt(t.O+4*t.keys); if (c.size()!=e+path.length) return null;
+      for (int i=0;i<path.length;i++) if (b.get((int)e+i)!=path[i]) return null; return t;
+    } catch (java.io.IOException|RuntimeException e) { return null; } //MISSING, TRUNCATED OR FOREIGN FILE: REBUILT AND OVERWRITTEN
+  }
+  //WRITTEN TO A TEMPORARY FILE THEN RENAMED, AS IN PatternCache; A FAILED WRITE ONLY MEANS THE NEXT RUN INDEXES AGAIN
+  private static void store(java.nio.file.Path x,java.nio.ByteBuffer b) {
+    java.nio.file.Path t=null;
+    try { java.nio.file.Files.createDirectories(dir); t=java.nio.file.Files.createTempFile(dir,"part",".tmp"); java.nio.file.Files.write(t,b.array()); java.nio.file.Files.move(t,x,java.nio.file.StandardCopyOption.REPLACE_EXISTING,java.nio.file.StandardCopyOption.ATOMIC_MOVE); }
+    catch (java.io.IOException e) { if (t!=null) try { java.nio.file.Files.deleteIfExists(t); } catch (java.io.IOException y) { } }
+  }
+  //THE POSTINGS OF THE BLOCKS BEFORE keep (THE LAST BLOCK), FOR AN APPEND: EACH LIST AS IT IS, WITHOUT ITS LAST GAP IF THAT ONE LEADS TO keep
+  //(READ BACKWARDS: THE BYTE BEFORE A VARINT IS THE END OF THE PREVIOUS ONE, HIGH BIT CLEAR), SO NOTHING IS DECODED
+  private void copyTo(Postings p,int keep) {
+    for (int i=0;i<keys;i++) {
+      int s=P+b.getInt(O+4*i),e=P+b.getInt(O+4*i+4),blk=b.getInt(K+4*keys+4*i);
+      if (blk>=keep) { int c=e-1; while (c>s&&b.get(c-1)<0) c--; int d=0; for (int j=c,k=0;j<e;j++,k+=7) d|=(b.get(j)&0x7F)<<k; blk-=d; e=c; }
+      if (e>s) p.seed(b.getInt(K+4*i),b,s,e-s,blk);
+    }
+  }
+  /** Blocs qui satisfont q, ou null pour tous. */
+  java.util.BitSet eval(Query q) {
+    if (q.op==Query.ALL) return null;
+    if (q.op==Query.TRI) {
+      java.util.BitSet r=new java.util.BitSet(blocks); int lo=0,hi=keys-1;
+      while (lo<=hi) { int mid=lo+hi>>>1,k=b.getInt(K+4*mid); if (k<q.tri) lo=mid+1; else if (k>q.tri) hi=mid-1; else { int blk=-1; for (int j=P+b.getInt(O+4*mid),e=P+b.getInt(O+4*mid+4);j<e;) { int d=0; for (int s=0;;s+=7) { int y=b.get(j++); d|=(y&0x7F)<<s; if (y>=0) break; } blk+=d; r.set(blk); } break; } }
+      return r;
+    }
+    java.util.BitSet r=null;
+    if (q.op==Query.AND) { for (Query s:q.subs) { java.util.BitSet x=eval(s); if (x==null) continue; if (r==null) r=x; else r.and(x); if (r.isEmpty()) break; } return r; }
+    r=new java.util.BitSet(blocks); for (Query s:q.subs) { java.util.BitSet x=eval(s); if (x==null) return null; r.or(x); } return r;
+  }
+
+  //WHAT THE PLANNER KNOWS OF A SUBTREE: exact, ITS WHOLE LANGUAGE WHEN SMALL; OTHERWISE EVERY MATCH STARTS WITH A STRING OF prefix AND ENDS WITH ONE OF
+  //suffix ("": ANYTHING, SO AN EMPTY MATCH ALWAYS HAS "" IN BOTH). IN BOTH CASES A LINE WITH A MATCH SATISFIES match. STRINGS HOLD BYTES AS CHARS
+  private static final class Info {
+    java.util.Set<String> exact,prefix,suffix; Query match=Query.ALL_BLOCKS;
+    java.util.Set<String> pre() { return exact!=null?exact:prefix; }
+    java.util.Set<String> suf() { return exact!=null?exact:suffix; }
+    Query fold() { return exact!=null?Query.and(match,Query.any(exact)):match; }
+  }
+  private static Info info(RegExTree t) {
+    Info r=new Info();
+    if (t.subTrees.isEmpty()) {
+      int lo=t.root==EgrepV1.R?t.lo:t.root,hi=t.root==EgrepV1.R?t.hi:t.root; if (hi>255||hi-lo>=MAX_SET) return any(r);
+      r.exact=new java.util.TreeSet<>(); for (int c=lo;c<=hi;c++) r.exact.add(String.valueOf((char)c)); return r;
+    }
+    Info a=info(t.subTrees.get(0)); if (t.root==EgrepV1.E) return any(r);
+    if (t.root==EgrepV1.PL) { r.prefix=a.pre(); r.suffix=a.suf(); r.match=a.fold(); return trim(r); }
+    Info b=info(t.subTrees.get(1));
+    if (t.root==EgrepV1.A) {
+      if (a.exact!=null&&b.exact!=null) { r.exact=union(a.exact,b.exact); r.match=Query.or(a.match,b.match); return trim(r); }
+      r.prefix=union(a.pre(),b.pre()); r.suffix=union(a.suf(),b.suf()); r.match=Query.or(a.fold(),b.fold()); return trim(r);
+    }
+    //CONCATENATION: THE STRINGS ACROSS THE JOIN (a's SUFFIXES THEN b's PREFIXES) GIVE TRIGRAMS THAT NEITHER SIDE HAS ALONE
+    r.match=Query.and(a.match,b.match); java.util.Set<String> j=cross(a.suf(),b.pre()); if (j.size()<=MAX_SET*MAX_SET) r.match=Query.and(r.match,Query.any(j));
+    if (a.exact!=null&&b.exact!=null) { r.exact=cross(a.exact,b.exact); return trim(r); }
+    r.prefix=a.exact!=null?cross(a.exact,b.prefix):a.prefix; r.suffix=b.exact!=null?cross(a.suffix,b.exact):b.suffix; return trim(r);
+  }
+  private static Info any(Info r) { r.prefix=r.suffix=java.util.Set.of(""); return r; }
+  //SETS GROWN PAST MAX_SET: THEIR TRIGRAMS GO INTO match, THEN THE STRINGS ARE CUT TO 2 BYTES (STILL TRUE PREFIXES / SUFFIXES), OR TO "" IF STILL TOO MANY
+  private static Info trim(Info r) {
+    if (r.exact!=null&&r.exact.size()>MAX_SET) { r.match=r.fold(); r.prefix=r.suffix=r.exact; r.exact=null; }
+    if (r.exact!=null) return r;
+    if (r.prefix.size()>MAX_SET) { r.match=Query.and(r.match,Query.any(r.prefix)); r.prefix=cut(r.prefix,true); }
+    if (r.suffix.size()>MAX_SET) { r.match=Query.and(r.match,Query.any(r.suffix)); r.suffix=cut(r.suffix,false); }
+    return r;
+  }
+  private static java.util.Set<String> cut(java.util.Set<String> s,boolean head) {
+    java.util.Set<String> r=new java.util.TreeSet<>(); for (String x:s) r.add(x.length()<=2?x:head?x.substring(0,2):x.substring(x.length()-2)); return r.size()>MAX_SET?java.util.Set.of(""):r;
+  }
+  private static java.util.Set<String> union(java.util.Set<String> a,java.util.Set<String> b) { java.util.Set<String> r=new java.util.TreeSet<>(a); r.addAll(b); return r; }
+  private static java.util.Set<String> cross(java.util.Set<String> a,java.util.Set<String> b) { java.util.Set<String> r=new java.util.TreeSet<>(); for (String x:a) for (String y:b) r.add(x+y); return r; }
+}
+/** Listes de blocs par trigramme pendant la construction : table à adressage ouvert, chaque liste en varints des écarts, comme dans le fichier. */
+final class Postings {
+  private int[] key=new int[1<<12],last=new int[1<<12],len=new int[1<<12]; private byte[][] data=new byte[1<<12][]; private int n,shift=20;
+  /** Ajoute le bloc blk (croissant pour un même t) à la liste de t. */
+  void add(int t,int blk) {
+    int s=slot(t); if (data[s]==null) { if (2*++n>key.length) { grow(); s=slot(t); } key[s]=t; last[s]=-1; data[s]=new byte[8]; }
+    if (last[s]==blk) return; int d=blk-last[s]; last[s]=blk; byte[] x=data[s]; int l=len[s]; if (l+5>x.length) data[s]=x=java.util.Arrays.copyOf(x,2*x.length);
+    while (d>=0x80) { x[l++]=(byte)(d|0x80); d>>>=7; } x[l++]=(byte)d; len[s]=l;
+  }
+  /** Liste de t recopiée telle quelle (len octets de src depuis from), dont le dernier bloc est last. */
+  void seed(int t,java.nio.ByteBuffer src,int from,int len,int last) {
+    if (2*++n>key.length) grow(); int s=slot(t); key[s]=t; this.last[s]=last; this.len[s]=len; data[s]=new byte[len+8]; src.get(from,data[s],0,len);
+  }
+  private int slot(int t) { int m=key.length-1,s=t*0x9E3779B1>>>shift; while (data[s]!=null&&key[s]!=t) s=s+1&m; return s; }
+  private void grow() {
+    int[] k=key,l=last,z=len; byte[][] d=data; key=new int[2*k.length]; last=new int[2*k.length]; len=new int[2*k.length]; data=new byte[2*k.length][]; shift--;
+    for (int i=0;i<k.length;i++) if (d[i]!=null) { int s=slot(k[i]); key[s]=k[i]; last[s]=l[i]; len[s]=z[i]; data[s]=d[i]; }
+  }
+  /** Le fichier d'index (voir TrigramIndex) pour B blocs. */
+  java.nio.ByteBuffer write(int B,long[] starts,long[] lines,long size,long mtime,long crc,byte[] path) {
+    long[] o=new long[n]; int T=0; long bytes=0; for (int i=0;i<key.length;i++) if (data[i]!=null) { o[T++]=(long)key[i]<<32|i; bytes+=len[i]; }
+    java.util.Arrays.sort(o); java.nio.ByteBuffer b=java.nio.ByteBuffer.allocate(Math.toIntExact(TrigramIndex.HEAD+16L*(B+1)+12L*T+4+bytes+path.length));
+    b.putInt(TrigramIndex.MAGIC).putInt(TrigramIndex.VERSION).putLong(size).putLong(mtime).putLong(crc).putInt(B).putInt(T).putInt(path.length);
+    for (int k=0;k<=B;k++) b.putLong(starts[k]); for (int k=0;k<=B;k++) b.putLong(lines[k]); for (long x:o) b.putInt((int)(x>>>32)); for (long x:o) b.putInt(last[(int)x]);
+    int off=0; for (long x:o) { b.putInt(off); off+=len[(int)x]; } b.putInt(off); for (long x:o) b.put(data[(int)x],0,len[(int)x]); b.put(path);
+    return b.flip();
+  }
+}
@@ -0,0 +1,34 @@
+#!/bin/bash
+#END-TO-END CHECKS: java EgrepV1 ON SMALL INPUTS, COMPARED WITH THE EXPECTED OUTPUT (WHAT LC_ALL=C grep -E PRINTS, UNLESS A COMMENT SAYS OTHERWISE)
+#USAGE: ./check.sh   (BUILDS INTO A TEMPORARY FOLDER; EXIT CODE 1 IF A CASE FAILS)
+cd "$(dirname "$0")" || exit 1
+T=$(mktemp -d); trap 'rm -rf "$T"' EXIT
+javac -encoding UTF-8 -d "$T/classes" EgrepV1.java || exit 1
+export LC_ALL=C EGREP_CACHE="$T/cache" EGREP_FOLLOW="$T/follow" EGREP_INDEX="$T/index"
+fail=0
+#t NAME INPUT EXPECTED ARGS...: INPUT AND EXPECTED ARE printf FORMATS; INPUT IS SEARCHED AS THE FILE f, THEN ON STDIN (WHERE -l NAMES IT "(standard input)")
+t() {
+  local name=$1; printf "$2" > "$T/f"; printf "$3" > "$T/want"; shift 3
+  (cd "$T" && java -cp classes EgrepV1 "$@" f) > "$T/got" 2>&1
+  cmp -s "$T/want" "$T/got" || { echo "FAIL file  $name: $(od -c "$T/got" | head -3)"; fail=1; }
+  (cd "$T" && java -cp classes EgrepV1 "$@" < f 2>&1) | sed 's/^(standard input)$/f/' > "$T/got"
+  cmp -s "$T/want" "$T/got" || { echo "FAIL stdin $name: $(od -c "$T/got" | head -3)"; fail=1; }
+}
+
+#LAST LINE WITHOUT A FINAL '\n'
+t 'last line, no newline'     'x\nSaron'  'Saron\n'    Saron
+t 'last line, no newline, -n' 'x\nSaron'  '2:Saron\n'  -n Saron
+t 'last line, no newline, -l' 'x\nSaron'  'f\n'        -l Saron
+t 'last line, no newline, -c' 'x\nSaron'  '1\n'        -c Saron
+t 'last line, no newline, -o' 'x\nSaron'  'ar\n'       -o ar
+
+#LINE ENDS: ONLY '\n' ENDS A LINE, A LONE '\r' STAYS IN IT (UNLIKE readLine IN THE FIRST VERSION)
+t 'lone CR stays in the line'  'a\rb\n'           'a\rb\n'    b
+t 'lone CR, -n'                'x\ry\nSaron\n'    '2:Saron\n'  -n Saron
+t 'lone CR, -c'                'a\rb\rc\n'        '1\n'        -c 'a|c'
+t 'lone CR, -o'                'xa\rya\n'         'a\na\n'     -o a
+#NOT AS grep: A MATCH NEVER SPANS A '\r', AND THE '\r' BEFORE A '\n' IS NOT PRINTED
+t 'no match across a CR'       'a\rb\naxb\n'      'axb\n'      'a.b'
+t 'CRLF line printed without CR' 'a\r\nb\r\n'    'a\n'        a
+
+[ $fail == 0 ] && echo ALL OK; exit $fail